@@ -0,0 +1,58 @@
+package org.example.benchmarks;
+
+import org.example.commandservice.dto.CommandResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// CommandService.mapToResponseDTO(s): orders and their lines turned into responses, from the order
+// snapshot or with live product data (served by a warm product cache)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandMappingBenchmark {
+
+    @Param({"20", "200"})
+    private int orders;
+
+    @Param({"5"})
+    private int lines;
+
+    private CommandServiceFixture fixture;
+    private String orderId;
+
+    @Setup
+    public void setUp() {
+        fixture = new CommandServiceFixture(100, orders, lines);
+        orderId = fixture.orders.keySet().iterator().next();
+    }
+
+    @Benchmark
+    public List<CommandResponseDTO> listOrders() {
+        return fixture.commandService.getAllCommands(false);
+    }
+
+    @Benchmark
+    public List<CommandResponseDTO> listOrdersLive() {
+        return fixture.commandService.getAllCommands(true);
+    }
+
+    @Benchmark
+    public CommandResponseDTO getOrder() {
+        return fixture.commandService.getCommandById(orderId, false);
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.entity.CommandProduct;
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.feign.ProductRestClient;
+import org.example.commandservice.repository.ClientOrderStatsRepository;
+import org.example.commandservice.repository.CommandProductRepository;
+import org.example.commandservice.repository.CommandRepository;
+import org.example.commandservice.repository.DailyOrderStatsRepository;
+import org.example.commandservice.repository.ProductMonthlySalesRepository;
+import org.example.commandservice.service.CommandService;
+import org.example.commandservice.service.OrderAnalytics;
+import org.example.commandservice.service.OrderOutbox;
+import org.example.commandservice.service.ProductCache;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+// A CommandService over in-memory orders and a stubbed product-service; writes are not kept,
+// so repeated order creation does not grow the heap
+final class CommandServiceFixture {
+
+    final Map<String, Product> catalog = new LinkedHashMap<>();
+    final Map<String, Command> orders = new LinkedHashMap<>();
+    final Map<String, List<CommandProduct>> linesByOrder = new LinkedHashMap<>();
+    final CommandService commandService;
+    final ProductCache productCache;
+
+    CommandServiceFixture(int products, int orderCount, int linesPerOrder) {
+        for (int i = 0; i < products; i++) {
+            String id = "product-" + i;
+            catalog.put(id, new Product(id, "Product " + i, "Description of product " + i, 10.0 + i, 1_000_000));
+        }
+        List<Product> productList = new ArrayList<>(catalog.values());
+        for (int o = 0; o < orderCount; o++) {
+            Command command = new Command();
+            command.setId(String.format("00000000-0000-7000-8000-%012d", o));
+            command.setDate(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(o));
+            command.setStatus(Command.CONFIRMED);
+            command.setClientId("client-" + (o % 10));
+            List<CommandProduct> lines = new ArrayList<>(linesPerOrder);
+            double amount = 0;
+            for (int l = 0; l < linesPerOrder; l++) {
+                Product product = productList.get((o + l) % productList.size());
+                int quantity = 1 + l;
+                lines.add(new CommandProduct(command.getId() + "-" + l, command, product.getId(), quantity,
+                        product.getName(), product.getPrice(), product.getPrice() * quantity, null, true));
+                amount += product.getPrice() * quantity;
+            }
+            command.setAmount(amount);
+            command.setProducts(lines);
+            orders.put(command.getId(), command);
+            linesByOrder.put(command.getId(), lines);
+        }
+
+        ProductRestClient productRestClient = Stubs.of(ProductRestClient.class, Map.of(
+                "findProductsByIds", args -> ((Collection<?>) args[0]).stream()
+                        .map(catalog::get)
+                        .filter(Objects::nonNull)
+                        .toList(),
+                "reserveProducts", args -> List.of()));
+        CommandRepository commandRepository = Stubs.of(CommandRepository.class, Map.of(
+                "findAll", args -> new ArrayList<>(orders.values()),
+                "findById", args -> Optional.ofNullable(orders.get((String) args[0])),
+                "save", args -> args[0]));
+        CommandProductRepository commandProductRepository = Stubs.of(CommandProductRepository.class, Map.of(
+                "findByCommandId", args -> linesByOrder.getOrDefault((String) args[0], List.of()),
+                "findByCommandIdIn", args -> ((Collection<?>) args[0]).stream()
+                        .flatMap(id -> linesByOrder.getOrDefault((String) id, List.of()).stream())
+                        .toList(),
+                "saveAll", args -> args[0]));
+
+        PlatformTransactionManager transactionManager = Stubs.transactionManager();
+        // Each summary upsert is a single statement
+        OrderAnalytics orderAnalytics = new OrderAnalytics(
+                Stubs.of(DailyOrderStatsRepository.class, Map.of("add", args -> 1)),
+                Stubs.of(ProductMonthlySalesRepository.class, Map.of("add", args -> 1)),
+                Stubs.of(ClientOrderStatsRepository.class, Map.of("add", args -> 1)),
+                null, 8);
+        OrderOutbox orderOutbox = new OrderOutbox(null, commandRepository, commandProductRepository, orderAnalytics,
+                new ObjectMapper(), false, 10, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        productCache = new ProductCache(productRestClient, null, new SimpleMeterRegistry(), true,
+                10_000, Duration.ofMinutes(5), Duration.ofHours(1));
+        productCache.putAll(catalog.values());
+        commandService = new CommandService(commandRepository, commandProductRepository, productRestClient, productCache,
+                null, orderOutbox, new TransactionTemplate(transactionManager), orderAnalytics);
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.commandservice.dto.CommandProductResponseDTO;
+import org.example.commandservice.dto.CommandResponseDTO;
+import org.example.productservice.dto.ProductResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Response bodies as written by the services' message converters: one order, a page of 20 orders,
+// one product and a page of 100 products
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private CommandResponseDTO order;
+    private List<CommandResponseDTO> orderPage;
+    private ProductResponseDTO product;
+    private List<ProductResponseDTO> productPage;
+
+    @Setup
+    public void setUp() {
+        // Same defaults as Spring Boot's mapper (java.time support, ISO dates)
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        orderPage = new ArrayList<>();
+        for (int o = 0; o < 20; o++) {
+            orderPage.add(order(o));
+        }
+        order = orderPage.get(0);
+        productPage = new ArrayList<>();
+        for (int p = 0; p < 100; p++) {
+            productPage.add(new ProductResponseDTO("product-" + p, "Product " + p, "Description of product " + p, 10.0 + p, 1_000));
+        }
+        product = productPage.get(0);
+    }
+
+    @Benchmark
+    public byte[] writeOrder() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] writeOrderPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderPage);
+    }
+
+    @Benchmark
+    public byte[] writeProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] writeProductPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productPage);
+    }
+
+    private static CommandResponseDTO order(int o) {
+        List<CommandProductResponseDTO> lines = new ArrayList<>();
+        double amount = 0;
+        for (int l = 0; l < 5; l++) {
+            int quantity = 1 + l;
+            double price = 10.0 + l;
+            lines.add(CommandProductResponseDTO.builder()
+                    .id("line-" + o + "-" + l)
+                    .productId("product-" + l)
+                    .quantity(quantity)
+                    .productName("Product " + l)
+                    .unitPrice(price)
+                    .lineTotal(price * quantity)
+                    .build());
+            amount += price * quantity;
+        }
+        return CommandResponseDTO.builder()
+                .id("order-" + o)
+                .date(LocalDateTime.of(2025, 1, 1, 12, 0).plusMinutes(o))
+                .status("CONFIRMED")
+                .amount(amount)
+                .products(lines)
+                .build();
+    }
+}
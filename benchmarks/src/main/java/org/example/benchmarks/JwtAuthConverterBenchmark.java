@@ -0,0 +1,66 @@
+package org.example.benchmarks;
+
+import org.example.commandservice.config.JwtAuthConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// JwtAuthConverter.convert for a Keycloak access token: a token already seen (the decoder cache returns
+// the same Jwt) and a new one, whose authorities are extracted; newToken is the cost of building it alone
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthConverterBenchmark {
+
+    private JwtAuthConverter converter;
+    private Jwt cachedJwt;
+
+    @Setup
+    public void setUp() {
+        converter = new JwtAuthConverter();
+        cachedJwt = newToken();
+        converter.convert(cachedJwt);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convertCachedToken() {
+        return converter.convert(cachedJwt);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convertNewToken() {
+        return converter.convert(newToken());
+    }
+
+    @Benchmark
+    public Jwt newToken() {
+        Instant now = Instant.now();
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("f3b1c2d4-0000-4000-8000-000000000001")
+                .issuer("http://localhost:8080/realms/devsecops-realm")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(300))
+                .claim("preferred_username", "user1")
+                .claim("scope", "openid profile email")
+                .claim("realm_access", Map.of("roles", List.of("USER", "ADMIN", "offline_access", "uma_authorization")))
+                .build();
+    }
+}
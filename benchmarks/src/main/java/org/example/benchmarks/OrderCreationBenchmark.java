@@ -0,0 +1,52 @@
+package org.example.benchmarks;
+
+import org.example.commandservice.dto.CommandProductDTO;
+import org.example.commandservice.dto.CommandRequestDTO;
+import org.example.commandservice.dto.CommandResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// CommandService.createCommand in synchronous mode: product lookup, validation and totals, line snapshots,
+// reservation and analytics updates, with product-service and the database stubbed out
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderCreationBenchmark {
+
+    @Param({"1", "5", "20"})
+    private int lines;
+
+    private CommandServiceFixture fixture;
+    private CommandRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        fixture = new CommandServiceFixture(100, 0, 0);
+        List<CommandProductDTO> products = new ArrayList<>(lines);
+        for (int l = 0; l < lines; l++) {
+            products.add(new CommandProductDTO("product-" + l, 1 + l % 3));
+        }
+        request = CommandRequestDTO.builder().products(products).build();
+    }
+
+    @Benchmark
+    public CommandResponseDTO createOrder() {
+        return fixture.commandService.createCommand(request);
+    }
+}
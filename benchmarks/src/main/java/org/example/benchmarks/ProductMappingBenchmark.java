@@ -0,0 +1,76 @@
+package org.example.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.productservice.dto.ProductResponseDTO;
+import org.example.productservice.entitie.Product;
+import org.example.productservice.repository.ProductRepository;
+import org.example.productservice.service.HotStockService;
+import org.example.productservice.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+// ProductService.mapToResponseDTO over an in-memory catalog: the whole catalog, and a batch of ids
+// as requested by command-service
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductMappingBenchmark {
+
+    @Param({"100", "1000"})
+    private int products;
+
+    private ProductService productService;
+    private List<String> batchIds;
+
+    @Setup
+    public void setUp() {
+        Map<String, Product> catalog = new LinkedHashMap<>();
+        for (int i = 0; i < products; i++) {
+            String id = "product-" + i;
+            catalog.put(id, new Product(id, "Product " + i, "Description of product " + i, 10.0 + i, 1_000, 1L));
+        }
+        ProductRepository productRepository = Stubs.of(ProductRepository.class, Map.of(
+                "findAll", args -> new ArrayList<>(catalog.values()),
+                "findAllById", args -> StreamSupport.stream(((Iterable<?>) args[0]).spliterator(), false)
+                        .map(catalog::get)
+                        .filter(Objects::nonNull)
+                        .toList()));
+        // Hot stock disabled, as in the default configuration
+        HotStockService hotStockService = new HotStockService(productRepository, null, Stubs.transactionManager(),
+                new SimpleMeterRegistry(), false, List.of(), 100, Duration.ofMinutes(1), "benchmark");
+        productService = new ProductService(productRepository, null, null, hotStockService, null, null,
+                Stubs.transactionManager());
+        batchIds = new ArrayList<>(catalog.keySet()).subList(0, Math.min(20, products));
+    }
+
+    @Benchmark
+    public List<ProductResponseDTO> listCatalog() {
+        return productService.getAllProducts();
+    }
+
+    @Benchmark
+    public List<ProductResponseDTO> getBatch() {
+        return productService.getProductsByIds(batchIds);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.commandservice.config;
+
+import feign.Request;
+import feign.RetryableException;
+import feign.Retryer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Retries idempotent GETs only, with full-jitter exponential backoff, while the shared retry budget allows it.
+// Feign clones the retryer once per call, which is where the budget is credited.
+public class BudgetedRetryer implements Retryer {
+
+    private final RetryBudget budget;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private int attempt = 1;
+
+    public BudgetedRetryer(RetryBudget budget, MeterRegistry meterRegistry, int maxAttempts, long backoffMillis, long maxBackoffMillis) {
+        this.budget = budget;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        if (e.method() != Request.HttpMethod.GET) {
+            throw e;
+        }
+        if (attempt >= maxAttempts) {
+            meterRegistry.counter("product.client.retries", "outcome", "attempts_exhausted").increment();
+            throw e;
+        }
+        if (!budget.tryWithdraw()) {
+            meterRegistry.counter("product.client.retries", "outcome", "budget_exhausted").increment();
+            throw e;
+        }
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << (attempt - 1));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        attempt++;
+        meterRegistry.counter("product.client.retries", "outcome", "retried").increment();
+    }
+
+    @Override
+    public Retryer clone() {
+        budget.deposit();
+        return new BudgetedRetryer(budget, meterRegistry, maxAttempts, backoffMillis, maxBackoffMillis);
+    }
+}
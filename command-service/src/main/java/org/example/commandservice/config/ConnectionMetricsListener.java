@@ -0,0 +1,67 @@
+package org.example.commandservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.TimeUnit;
+
+// Connection side of each product-service call: time until a connection was acquired, split by whether it
+// came from the pool or had to be opened, and the number of connections opened (churn)
+class ConnectionMetricsListener extends EventListener {
+
+    private final Timer pooledAcquire;
+    private final Timer newAcquire;
+    private final Counter opened;
+    private final Counter failed;
+    private long callStart;
+    private boolean connecting;
+
+    private ConnectionMetricsListener(Timer pooledAcquire, Timer newAcquire, Counter opened, Counter failed) {
+        this.pooledAcquire = pooledAcquire;
+        this.newAcquire = newAcquire;
+        this.opened = opened;
+        this.failed = failed;
+    }
+
+    static EventListener.Factory factory(MeterRegistry meterRegistry) {
+        Timer pooledAcquire = meterRegistry.timer("product.client.connection.acquire", "connection", "pooled");
+        Timer newAcquire = meterRegistry.timer("product.client.connection.acquire", "connection", "new");
+        Counter opened = meterRegistry.counter("product.client.connections.opened");
+        Counter failed = meterRegistry.counter("product.client.connections.failed");
+        return call -> new ConnectionMetricsListener(pooledAcquire, newAcquire, opened, failed);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connecting = true;
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        opened.increment();
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+        failed.increment();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        (connecting ? newAcquire : pooledAcquire).record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+        connecting = false;
+    }
+}
@@ -2,18 +2,42 @@ package org.example.commandservice.config;
 
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
+import feign.RetryableException;
+import feign.Retryer;
+import feign.codec.ErrorDecoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import org.example.common.security.InternalIdentityResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.CircuitBreakerNameResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Configuration
 public class FeignClientConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(FeignClientConfig.class);
+    // Calls without any identity are logged at most once per interval, with the number of calls skipped since
+    private static final long MISSING_IDENTITY_LOG_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
     @Bean
-    public RequestInterceptor bearerTokenRequestInterceptor() {
+    public RequestInterceptor bearerTokenRequestInterceptor(ServiceIdentity serviceIdentity) {
         return new RequestInterceptor() {
+            private final AtomicLong nextMissingIdentityLog = new AtomicLong(System.nanoTime());
+            private final AtomicLong missingIdentityCalls = new AtomicLong();
+
             @Override
             public void apply(RequestTemplate template) {
                 // Récupérer l'authentification actuelle depuis SecurityContextHolder
@@ -23,18 +47,103 @@ public class FeignClientConfig {
                     Jwt jwt = (Jwt) authentication.getPrincipal();
                     String tokenValue = jwt.getTokenValue();
 
-                    // Ajouter le header Authorization avec le Bearer token
-                    template.header("Authorization", "Bearer " + tokenValue);
-
-                    System.out.println("Token JWT ajouté à la requête Feign: " + tokenValue.substring(0, 50) + "...");
-                } else {
-                    System.out.println("Aucun token JWT trouvé dans le contexte de sécurité");
-                    System.out.println("Authentication: " + authentication);
-                    if (authentication != null) {
-                        System.out.println("Principal type: " + authentication.getPrincipal().getClass().getName());
+                    boolean internal = InternalIdentityResolver.isInternal(jwt);
+                    if (internal) {
+                        // Identité signée par le gateway: product-service la vérifie par HMAC
+                        template.header(InternalIdentityResolver.HEADER, tokenValue);
+                    } else {
+                        // Ajouter le header Authorization avec le Bearer token
+                        template.header("Authorization", "Bearer " + tokenValue);
                     }
+                    // Jamais le token lui-même dans les logs
+                    log.debug("feign call method={} path={} identity={} user={}", template.method(), template.path(),
+                            internal ? "internal" : "bearer", authentication.getName());
+                } else if (authentication == null && serviceIdentity.isAvailable()) {
+                    // Appel hors requête utilisateur (traitement des commandes en arrière-plan)
+                    template.header(InternalIdentityResolver.HEADER, serviceIdentity.token());
+                    log.debug("feign call method={} path={} identity=service", template.method(), template.path());
+                } else {
+                    logMissingIdentity(template, authentication);
                 }
             }
+
+            private void logMissingIdentity(RequestTemplate template, Authentication authentication) {
+                long calls = missingIdentityCalls.incrementAndGet();
+                long next = nextMissingIdentityLog.get();
+                long now = System.nanoTime();
+                if (now - next >= 0 && nextMissingIdentityLog.compareAndSet(next, now + MISSING_IDENTITY_LOG_INTERVAL)) {
+                    missingIdentityCalls.addAndGet(-calls);
+                    log.warn("feign call without identity method={} path={} principal={} calls_since_last_log={}",
+                            template.method(), template.path(),
+                            authentication == null ? "none" : authentication.getPrincipal().getClass().getSimpleName(), calls);
+                }
+            }
+        };
+    }
+
+    // Counted per attempt, retries included
+    @Bean
+    public RequestInterceptor feignCallCounter() {
+        return template -> RequestCost.countFeignCall();
+    }
+
+    // One retry budget shared by every call of the client
+    @Bean
+    public RetryBudget productClientRetryBudget(
+            @Value("${product.client.retry.budget-ratio:0.1}") double ratio,
+            @Value("${product.client.retry.budget-max-tokens:10}") double maxTokens) {
+        return new RetryBudget(ratio, maxTokens);
+    }
+
+    @Bean
+    public Retryer productClientRetryer(RetryBudget productClientRetryBudget,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${product.client.retry.max-attempts:3}") int maxAttempts,
+                                        @Value("${product.client.retry.backoff-ms:50}") long backoffMillis,
+                                        @Value("${product.client.retry.max-backoff-ms:500}") long maxBackoffMillis) {
+        return new BudgetedRetryer(productClientRetryBudget, meterRegistry, maxAttempts, backoffMillis, maxBackoffMillis);
+    }
+
+    // Gateway errors and unavailability are transient: make them retryable (the retryer only retries GETs)
+    @Bean
+    public ErrorDecoder productClientErrorDecoder() {
+        ErrorDecoder defaultDecoder = new ErrorDecoder.Default();
+        return (methodKey, response) -> {
+            int status = response.status();
+            if (status == 502 || status == 503 || status == 504) {
+                return new RetryableException(status, "product-service returned " + status,
+                        response.request().httpMethod(), (Long) null, response.request());
+            }
+            return defaultDecoder.decode(methodKey, response);
+        };
+    }
+
+    // All methods of a Feign client share one circuit breaker and bulkhead, named after the client
+    @Bean
+    public CircuitBreakerNameResolver circuitBreakerNameResolver() {
+        return (feignClientName, target, method) -> feignClientName;
+    }
+
+    @Bean
+    public RegistryEventConsumer<CircuitBreaker> circuitBreakerTransitionMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> event) {
+                CircuitBreaker circuitBreaker = event.getAddedEntry();
+                circuitBreaker.getEventPublisher().onStateTransition(transition -> meterRegistry.counter(
+                        "product.client.circuitbreaker.transitions",
+                        "name", circuitBreaker.getName(),
+                        "from", transition.getStateTransition().getFromState().name(),
+                        "to", transition.getStateTransition().getToState().name()).increment());
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> event) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> event) {
+            }
         };
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package org.example.commandservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// HTTP client used by Feign for product-service calls (replaces the one auto-configured by OpenFeign).
+// Concurrent calls per host are already bounded by the product-service bulkhead.
+@Configuration
+public class ProductClientHttpConfig {
+
+    @Bean
+    public ConnectionPool productClientConnectionPool(
+            MeterRegistry meterRegistry,
+            @Value("${product.client.pool.max-idle-connections:50}") int maxIdleConnections,
+            @Value("${product.client.pool.keep-alive:30s}") Duration keepAlive) {
+        return newConnectionPool(meterRegistry, maxIdleConnections, keepAlive);
+    }
+
+    @Bean
+    public OkHttpClient productClientOkHttpClient(ConnectionPool productClientConnectionPool,
+                                                  MeterRegistry meterRegistry,
+                                                  @Value("${product.client.h2c:false}") boolean h2c,
+                                                  @Value("${product.client.tcp-no-delay:true}") boolean tcpNoDelay) {
+        return newHttpClient(productClientConnectionPool, meterRegistry, h2c, tcpNoDelay);
+    }
+
+    // Active and idle connection gauges: product.client.pool.connection.count and .limit
+    static ConnectionPool newConnectionPool(MeterRegistry meterRegistry, int maxIdleConnections, Duration keepAlive) {
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+        new OkHttpConnectionPoolMetrics(connectionPool, "product.client.pool", Tags.empty(), maxIdleConnections).bindTo(meterRegistry);
+        return connectionPool;
+    }
+
+    // Timeouts are not set here: Feign applies the per-client connect and read timeouts to each request
+    static OkHttpClient newHttpClient(ConnectionPool connectionPool, MeterRegistry meterRegistry, boolean h2c, boolean tcpNoDelay) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .eventListenerFactory(ConnectionMetricsListener.factory(meterRegistry));
+        if (h2c) {
+            builder.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+        if (tcpNoDelay) {
+            // Small JSON requests are sent right away instead of waiting for the previous segment's ACK
+            builder.socketFactory(new TcpNoDelaySocketFactory());
+        }
+        return builder.build();
+    }
+}
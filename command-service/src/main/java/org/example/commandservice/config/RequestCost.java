@@ -0,0 +1,44 @@
+package org.example.commandservice.config;
+
+import io.micrometer.context.ContextRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Work done on behalf of the current HTTP request, recorded per endpoint by RequestCostFilter.
+// Registered with context-propagation so executors wrapped with a context snapshot keep counting.
+public final class RequestCost {
+
+    static final ThreadLocal<RequestCost> CURRENT = new ThreadLocal<>();
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor("request.cost", CURRENT::get, CURRENT::set, CURRENT::remove);
+    }
+
+    private final AtomicInteger feignCalls = new AtomicInteger();
+    private final AtomicInteger sqlStatements = new AtomicInteger();
+
+    RequestCost() {
+    }
+
+    public static void countFeignCall() {
+        RequestCost cost = CURRENT.get();
+        if (cost != null) {
+            cost.feignCalls.incrementAndGet();
+        }
+    }
+
+    public static void countSqlStatement() {
+        RequestCost cost = CURRENT.get();
+        if (cost != null) {
+            cost.sqlStatements.incrementAndGet();
+        }
+    }
+
+    int feignCalls() {
+        return feignCalls.get();
+    }
+
+    int sqlStatements() {
+        return sqlStatements.get();
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.commandservice.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Histograms of Feign calls and SQL statements per request, tagged like http.server.requests,
+// e.g. to spot an endpoint whose number of product-service calls grows with the size of the order
+@Component
+public class RequestCostFilter extends OncePerRequestFilter {
+
+    private static final double[] BUCKETS = {1, 2, 5, 10, 20, 50, 100, 500};
+
+    private final MeterRegistry meterRegistry;
+
+    public RequestCostFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestCost cost = new RequestCost();
+        RequestCost.CURRENT.set(cost);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestCost.CURRENT.remove();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            summary("http.server.requests.feign.calls", "calls", request.getMethod(), uri).record(cost.feignCalls());
+            summary("http.server.requests.sql.statements", "statements", request.getMethod(), uri).record(cost.sqlStatements());
+        }
+    }
+
+    private DistributionSummary summary(String name, String baseUnit, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .baseUnit(baseUnit)
+                .tag("method", method)
+                .tag("uri", uri)
+                .serviceLevelObjectives(BUCKETS)
+                .register(meterRegistry);
+    }
+}
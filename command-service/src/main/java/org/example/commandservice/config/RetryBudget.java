@@ -0,0 +1,29 @@
+package org.example.commandservice.config;
+
+// Token bucket limiting retries to a fraction of the calls made: every call deposits
+// `ratio` tokens and every retry withdraws one, so retries can't multiply the load on a
+// struggling product-service. `maxTokens` is the burst allowance available at startup.
+public class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RetryBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
@@ -1,6 +1,15 @@
 package org.example.commandservice.config;
 
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.example.common.security.CachingJwtDecoder;
+import org.example.common.security.InternalIdentityResolver;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -8,11 +17,17 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.Arrays;
 
 @Configuration
@@ -26,18 +41,51 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity, InternalIdentityResolver internalIdentityResolver) throws Exception {
         return httpSecurity
                 .cors(Customizer.withDefaults())
                 .sessionManagement(sm->sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .csrf(csrf->csrf.disable())
                 .headers(h->h.frameOptions(fo->fo.disable()))
                 .authorizeHttpRequests(ar->ar.requestMatchers("/h2-console/**").permitAll())
+                // scraped by Prometheus without a token
+                .authorizeHttpRequests(ar->ar.requestMatchers("/actuator/prometheus", "/actuator/health").permitAll())
                 //.authorizeHttpRequests(ar->ar.requestMatchers("/api/products/**").hasAuthority("ADMIN"))
                 .authorizeHttpRequests(ar->ar.anyRequest().authenticated())
-                .oauth2ResourceServer(o2->o2.jwt(jwt->jwt.jwtAuthenticationConverter(jwtAuthConverter)))
+                .oauth2ResourceServer(o2->o2
+                        .bearerTokenResolver(internalIdentityResolver.bearerTokenResolver())
+                        .authenticationManagerResolver(internalIdentityResolver))
                 .build();
     }
+    // Replaces Boot's decoder: the JWK set is refreshed in the background before it expires,
+    // and validated tokens are cached until their expiry
+    @Bean
+    JwtDecoder jwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                          @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+                          @Value("${security.jwt.cache.maximum-size:10000}") long maximumSize,
+                          @Value("${security.jwt.cache.max-ttl:5m}") Duration maxTtl,
+                          @Value("${security.jwt.jwk.cache-ttl:15m}") Duration jwkCacheTtl,
+                          @Value("${security.jwt.jwk.refresh-ahead:1m}") Duration jwkRefreshAhead) throws MalformedURLException {
+        JWKSource<SecurityContext> jwkSource = JWKSourceBuilder.<SecurityContext>create(URI.create(jwkSetUri).toURL())
+                .cache(jwkCacheTtl.toMillis(), JWKSourceBuilder.DEFAULT_CACHE_REFRESH_TIMEOUT)
+                .refreshAheadCache(jwkRefreshAhead.toMillis(), true)
+                .build();
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are checked by the Spring validators below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> { });
+        NimbusJwtDecoder nimbusJwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        nimbusJwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return new CachingJwtDecoder(nimbusJwtDecoder, maximumSize, maxTtl);
+    }
+
+    @Bean
+    InternalIdentityResolver internalIdentityResolver(JwtDecoder jwtDecoder,
+                                                      @Value("${security.internal-identity.enabled:false}") boolean enabled,
+                                                      @Value("${security.internal-identity.secret:}") String secret) {
+        return new InternalIdentityResolver(jwtDecoder, jwtAuthConverter, enabled, secret);
+    }
+
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -0,0 +1,76 @@
+package org.example.commandservice.config;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.example.common.security.InternalIdentityResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+// Identity of command-service itself, for calls made outside of a user request (background order processing).
+// Signed like the gateway's internal identity, so product-service accepts it on the same path.
+@Component
+public class ServiceIdentity {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final JWSSigner signer;
+    private String token;
+    private Instant renewAt = Instant.MIN;
+
+    public ServiceIdentity(@Value("${security.internal-identity.enabled:false}") boolean enabled,
+                           @Value("${security.internal-identity.secret:}") String secret) {
+        this.signer = enabled ? macSigner(secret) : null;
+    }
+
+    public boolean isAvailable() {
+        return signer != null;
+    }
+
+    public synchronized String token() {
+        if (signer == null) {
+            throw new IllegalStateException("No service identity: security.internal-identity is disabled");
+        }
+        Instant now = Instant.now();
+        if (now.isBefore(renewAt)) {
+            return token;
+        }
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(InternalIdentityResolver.ISSUER)
+                .subject("command-service")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(TTL)))
+                .claim("preferred_username", "command-service")
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        try {
+            jwt.sign(signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Unable to sign service identity", e);
+        }
+        token = jwt.serialize();
+        // Renewed at half its lifetime, so a token in flight never expires
+        renewAt = now.plus(TTL.dividedBy(2));
+        return token;
+    }
+
+    private static JWSSigner macSigner(String secret) {
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalStateException("security.internal-identity.secret must be at least 32 bytes when the internal identity is enabled");
+        }
+        try {
+            return new MACSigner(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
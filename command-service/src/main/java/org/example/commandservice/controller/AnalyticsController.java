@@ -0,0 +1,71 @@
+package org.example.commandservice.controller;
+
+import org.example.commandservice.dto.ClientTotalsDTO;
+import org.example.commandservice.dto.DailyRevenueDTO;
+import org.example.commandservice.dto.ProductSalesDTO;
+import org.example.commandservice.service.OrderAnalytics;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Reports over confirmed orders, served from the summaries kept by OrderAnalytics
+@RestController
+@RequestMapping("/analytics")
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AnalyticsController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final OrderAnalytics orderAnalytics;
+
+    public AnalyticsController(OrderAnalytics orderAnalytics) {
+        this.orderAnalytics = orderAnalytics;
+    }
+
+    // Defaults to the last 30 days
+    @GetMapping("/revenue")
+    public ResponseEntity<List<DailyRevenueDTO>> getDailyRevenue(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(30);
+        return ResponseEntity.ok(orderAnalytics.getDailyRevenue(start, end));
+    }
+
+    // by=revenue or by=quantity; defaults to the current month
+    @GetMapping("/top-products")
+    public ResponseEntity<List<ProductSalesDTO>> getTopProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "revenue") String by,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (!by.equals("revenue") && !by.equals("quantity")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "by must be revenue or quantity");
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end;
+        return ResponseEntity.ok(orderAnalytics.getTopProducts(start, end, by.equals("quantity"), Math.min(limit, MAX_LIMIT)));
+    }
+
+    @GetMapping("/clients")
+    public ResponseEntity<List<ClientTotalsDTO>> getTopClients(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(orderAnalytics.getTopClients(Math.min(limit, MAX_LIMIT)));
+    }
+
+    @GetMapping("/clients/{clientId}")
+    public ResponseEntity<ClientTotalsDTO> getClientTotals(@PathVariable String clientId) {
+        return ResponseEntity.of(orderAnalytics.getClientTotals(clientId));
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        orderAnalytics.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,12 +1,22 @@
 package org.example.commandservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import org.example.commandservice.dto.CommandRequestDTO;
 import org.example.commandservice.dto.CommandResponseDTO;
+import org.example.commandservice.entity.Command;
 import org.example.commandservice.service.CommandService;
+import org.example.common.idempotency.IdempotencyService;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -14,15 +24,26 @@ import java.util.List;
 public class CommandController {
 
     private final CommandService commandService;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyService idempotencyService;
 
-    public CommandController(CommandService commandService) {
+    public CommandController(CommandService commandService, ObjectMapper objectMapper, IdempotencyService idempotencyService) {
         this.commandService = commandService;
+        this.objectMapper = objectMapper;
+        this.idempotencyService = idempotencyService;
     }
 
+    // With an Idempotency-Key, a retried submission gets the stored response instead of placing a second order
     @PostMapping
-    public ResponseEntity<CommandResponseDTO> createCommand(@RequestBody CommandRequestDTO commandRequestDTO) {
-        CommandResponseDTO createdCommand = commandService.createCommand(commandRequestDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdCommand);
+    public ResponseEntity<CommandResponseDTO> createCommand(
+            @RequestBody CommandRequestDTO commandRequestDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "POST /commands", commandRequestDTO, CommandResponseDTO.class, () -> {
+            CommandResponseDTO createdCommand = commandService.createCommand(commandRequestDTO);
+            // 202 while the stock reservation is still in progress (asynchronous pipeline)
+            HttpStatus status = Command.PENDING.equals(createdCommand.getStatus()) ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+            return ResponseEntity.status(status).body(createdCommand);
+        });
     }
 
 //    @PutMapping("/{id}")
@@ -39,21 +60,82 @@ public class CommandController {
 //        return ResponseEntity.noContent().build();
 //    }
 
+    // Without parameters every command is returned; page/size or after/limit bound the response.
+    // Orders are served from their own snapshot, live=true adds current product data (stock included).
     @GetMapping
-    public ResponseEntity<List<CommandResponseDTO>> getAllCommands() {
-        List<CommandResponseDTO> commands = commandService.getAllCommands();
+    public ResponseEntity<List<CommandResponseDTO>> getAllCommands(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean live) {
+        if (page != null) {
+            checkPage(page, size);
+            Slice<CommandResponseDTO> slice = commandService.getCommandsPage(page, size, live);
+            return ResponseEntity.ok()
+                    .header("X-Has-Next", String.valueOf(slice.hasNext()))
+                    .body(slice.getContent());
+        }
+        if (after != null || limit != null) {
+            checkPage(0, limit != null ? limit : size);
+            List<CommandResponseDTO> commands = commandService.getCommandsAfter(after, limit != null ? limit : size, live);
+            return ResponseEntity.ok(commands);
+        }
+        List<CommandResponseDTO> commands = commandService.getAllCommands(live);
         return ResponseEntity.ok(commands);
     }
 
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportCommands() {
+        StreamingResponseBody body = outputStream -> {
+            SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream);
+            commandService.streamAllCommands(command -> {
+                try {
+                    writer.write(command);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    // Orders of the caller (from its token), newest first
+    @GetMapping("/me")
+    public ResponseEntity<List<CommandResponseDTO>> getMyCommands(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean live) {
+        checkPage(page, size);
+        Slice<CommandResponseDTO> slice = commandService.getMyCommandsPage(page, size, live);
+        return ResponseEntity.ok()
+                .header("X-Has-Next", String.valueOf(slice.hasNext()))
+                .body(slice.getContent());
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<CommandResponseDTO> getCommandById(@PathVariable String id) {
-        CommandResponseDTO command = commandService.getCommandById(id);
+    public ResponseEntity<CommandResponseDTO> getCommandById(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean live) {
+        CommandResponseDTO command = commandService.getCommandById(id, live);
         return ResponseEntity.ok(command);
     }
 
     @GetMapping("/client/{clientId}")
-    public ResponseEntity<List<CommandResponseDTO>> getCommandsByClientId(@PathVariable String clientId) {
-        List<CommandResponseDTO> commands = commandService.getCommandsByClientId(clientId);
+    public ResponseEntity<List<CommandResponseDTO>> getCommandsByClientId(
+            @PathVariable String clientId,
+            @RequestParam(defaultValue = "false") boolean live) {
+        List<CommandResponseDTO> commands = commandService.getCommandsByClientId(clientId, live);
         return ResponseEntity.ok(commands);
     }
+
+    // PageRequest and Limit reject these with an IllegalArgumentException, which would surface as a 500
+    private static void checkPage(int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be >= 0 and size (or limit) >= 1");
+        }
+    }
 }
\ No newline at end of file
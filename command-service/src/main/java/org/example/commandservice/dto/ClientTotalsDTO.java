@@ -0,0 +1,16 @@
+package org.example.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientTotalsDTO {
+    private String clientId;
+    private Long orders;
+    private Double revenue;
+}
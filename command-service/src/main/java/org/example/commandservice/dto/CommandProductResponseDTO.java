@@ -13,6 +13,11 @@ import org.example.commandservice.entity.Product;
 @AllArgsConstructor
 public class CommandProductResponseDTO {
     private String id;
-    private Product product;
+    private String productId;
+    private String productName;
+    private double unitPrice;
     private int quantity;
+    private double lineTotal;
+    // Current product data from product-service, only filled when live data is requested
+    private Product product;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package org.example.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRevenueDTO {
+    private LocalDate day;
+    private Long orders;
+    private Double revenue;
+}
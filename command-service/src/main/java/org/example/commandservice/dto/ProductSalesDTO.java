@@ -0,0 +1,17 @@
+package org.example.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesDTO {
+    private String productId;
+    private String productName;
+    private Long quantity;
+    private Double revenue;
+}
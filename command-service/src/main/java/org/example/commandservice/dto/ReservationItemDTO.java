@@ -0,0 +1,17 @@
+package org.example.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationItemDTO {
+    private String productId;
+    private int quantity;
+    // product-service applies the reservation and the release of an order once, however often they are sent
+    private String commandId;
+}
@@ -0,0 +1,22 @@
+package org.example.commandservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+    private List<ReservationItemDTO> items;
+
+    public static StockReservationDTO forOrder(String commandId, List<CommandProductDTO> lines) {
+        return new StockReservationDTO(lines.stream()
+                .map(line -> new ReservationItemDTO(line.getProductId(), line.getQuantity(), commandId))
+                .toList());
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.commandservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Confirmed orders per client since the first one; one row per client, ordered by revenue for the top clients
+@Entity
+@Table(indexes = @Index(name = "idx_client_order_stats_revenue", columnList = "revenue"))
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor
+public class ClientOrderStats {
+    @Id
+    private String clientId;
+    private long orderCount;
+    private double revenue;
+}
@@ -5,13 +5,19 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_command_client_id_date", columnList = "client_id, date desc"))
 @AllArgsConstructor @NoArgsConstructor @Getter @Setter
-public class Command {
+public class Command implements Persistable<String> {
+    public static final String PENDING = "PENDING";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String REJECTED = "REJECTED";
+
     @Id
     private String id;
     private LocalDateTime date;
@@ -20,4 +26,19 @@ public class Command {
     private String clientId;
     @OneToMany(mappedBy = "command")
     private List<CommandProduct> products;
-}
\ No newline at end of file
+
+    // Ids are assigned by the application: without this, save() would run a SELECT before each INSERT (merge)
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+}
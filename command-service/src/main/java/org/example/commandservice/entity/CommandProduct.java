@@ -5,16 +5,37 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
 @Entity
+@Table(indexes = @Index(name = "idx_command_product_command_id", columnList = "command_id"))
 @Getter @Setter @AllArgsConstructor @NoArgsConstructor
-public class CommandProduct {
+public class CommandProduct implements Persistable<String> {
     @Id
     private String id;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Command command;
     private String productId;
     private int quantity;
+    // Snapshot of the product taken when the order was placed; null for lines created before it existed
+    private String productName;
+    private Double unitPrice;
+    private Double lineTotal;
     @Transient
     private Product product;
-}
\ No newline at end of file
+
+    // Same as Command: inserted directly, no merge
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+}
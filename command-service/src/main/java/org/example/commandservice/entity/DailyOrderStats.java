@@ -0,0 +1,25 @@
+package org.example.commandservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+// Confirmed orders per day. Each day is split over a few shard rows so concurrent orders
+// do not all wait on the same row lock; readers sum the shards.
+@Entity
+@Table(indexes = @Index(name = "idx_daily_order_stats_day", columnList = "order_day"))
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor
+public class DailyOrderStats {
+    // day + "#" + shard
+    @Id
+    private String id;
+    @Column(name = "order_day")
+    private LocalDate day;
+    private int shard;
+    private long orderCount;
+    private double revenue;
+}
@@ -0,0 +1,49 @@
+package org.example.commandservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+// Written in the same transaction as the order it belongs to; the dispatcher publishes it afterwards
+@Entity
+@Table(indexes = @Index(name = "idx_outbox_event_due", columnList = "processed_at, available_at"))
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor
+public class OutboxEvent implements Persistable<String> {
+    public static final String STOCK_RESERVATION_REQUESTED = "STOCK_RESERVATION_REQUESTED";
+    // Compensation: stock was reserved for an order that could not be confirmed
+    public static final String STOCK_RELEASE_REQUESTED = "STOCK_RELEASE_REQUESTED";
+
+    @Id
+    private String id;
+    private String commandId;
+    private String type;
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String payload;
+    private Instant createdAt;
+    // Not published again before this instant (backoff after a failed attempt)
+    private Instant availableAt;
+    private Instant processedAt;
+    private int attempts;
+
+    // New events are inserted without a prior SELECT, see Command
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+}
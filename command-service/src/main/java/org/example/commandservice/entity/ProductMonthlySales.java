@@ -0,0 +1,27 @@
+package org.example.commandservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+// Units and revenue of confirmed order lines per product and month, sharded like DailyOrderStats
+@Entity
+@Table(indexes = @Index(name = "idx_product_monthly_sales_month", columnList = "sales_month"))
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor
+public class ProductMonthlySales {
+    // month + "#" + productId + "#" + shard
+    @Id
+    private String id;
+    // First day of the month
+    @Column(name = "sales_month")
+    private LocalDate month;
+    private String productId;
+    private String productName;
+    private int shard;
+    private long quantity;
+    private double revenue;
+}
@@ -2,15 +2,18 @@ package org.example.commandservice.feign;
 
 import org.example.commandservice.config.FeignClientConfig;
 import org.example.commandservice.dto.QuantityChangeDTO;
+import org.example.commandservice.dto.StockReservationDTO;
 import org.example.commandservice.entity.Product;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collection;
 import java.util.List;
 
 @FeignClient(
         name = "product-service",
-        configuration = FeignClientConfig.class  // Référence à votre configuration
+        configuration = FeignClientConfig.class,  // Référence à votre configuration
+        fallbackFactory = ProductRestClientFallbackFactory.class
 )
 public interface ProductRestClient {
 
@@ -20,9 +23,18 @@ public interface ProductRestClient {
     @GetMapping("/products")
     List<Product> findAllProducts();
 
+    @PostMapping("/products/batch")
+    List<Product> findProductsByIds(@RequestBody Collection<String> productIds);
+
     @PutMapping("/products/{productId}/quantity")
     void updateProductQuantity(
             @PathVariable String productId,
             @RequestBody QuantityChangeDTO quantityChangeDTO
     );
+
+    @PostMapping("/products/reservations")
+    List<Product> reserveProducts(@RequestBody StockReservationDTO stockReservationDTO);
+
+    @PostMapping("/products/reservations/release")
+    List<Product> releaseProducts(@RequestBody StockReservationDTO stockReservationDTO);
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package org.example.commandservice.feign;
+
+import org.example.commandservice.dto.QuantityChangeDTO;
+import org.example.commandservice.dto.StockReservationDTO;
+import org.example.commandservice.entity.Product;
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+// Used when a call fails or the circuit is open: every call propagates the original failure (a 409 stays
+// a FeignException.Conflict) instead of the circuit breaker's NoFallbackAvailableException. Stale product
+// data is never served from here, since order creation validates stock and prices with these calls;
+// order displays fall back to the last known data in ProductCache.
+@Component
+public class ProductRestClientFallbackFactory implements FallbackFactory<ProductRestClient> {
+
+    @Override
+    public ProductRestClient create(Throwable cause) {
+        return new ProductRestClient() {
+            @Override
+            public Product findProductById(String productId) {
+                throw propagate(cause);
+            }
+
+            @Override
+            public List<Product> findAllProducts() {
+                throw propagate(cause);
+            }
+
+            @Override
+            public List<Product> findProductsByIds(Collection<String> productIds) {
+                throw propagate(cause);
+            }
+
+            @Override
+            public void updateProductQuantity(String productId, QuantityChangeDTO quantityChangeDTO) {
+                throw propagate(cause);
+            }
+
+            @Override
+            public List<Product> reserveProducts(StockReservationDTO stockReservationDTO) {
+                throw propagate(cause);
+            }
+
+            @Override
+            public List<Product> releaseProducts(StockReservationDTO stockReservationDTO) {
+                throw propagate(cause);
+            }
+        };
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        return cause instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(cause);
+    }
+}
\ No newline at end of file
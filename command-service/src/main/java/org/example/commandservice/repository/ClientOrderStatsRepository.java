@@ -0,0 +1,21 @@
+package org.example.commandservice.repository;
+
+import org.example.commandservice.entity.ClientOrderStats;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ClientOrderStatsRepository extends JpaRepository<ClientOrderStats, String> {
+
+    // Creates the row on the first order of the client, like DailyOrderStatsRepository.add
+    @Modifying
+    @Query("insert into ClientOrderStats s (clientId, orderCount, revenue) values (:clientId, :orders, :revenue) " +
+            "on conflict(clientId) do update set orderCount = s.orderCount + excluded.orderCount, revenue = s.revenue + excluded.revenue")
+    int add(@Param("clientId") String clientId, @Param("orders") long orders, @Param("revenue") double revenue);
+
+    List<ClientOrderStats> findByOrderByRevenueDesc(Limit limit);
+}
@@ -2,6 +2,22 @@ package org.example.commandservice.repository;
 
 import org.example.commandservice.entity.CommandProduct;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface CommandProductRepository extends JpaRepository<CommandProduct, String> {
-}
\ No newline at end of file
+    // Explicit JPQL so the filter hits the command_id foreign key (and its index) without joining command
+    @Query("select cp from CommandProduct cp where cp.command.id = :commandId")
+    List<CommandProduct> findByCommandId(@Param("commandId") String commandId);
+
+    @Query("select cp from CommandProduct cp where cp.command.id in :commandIds")
+    List<CommandProduct> findByCommandIdIn(@Param("commandIds") Collection<String> commandIds);
+
+    @Modifying
+    @Query("delete from CommandProduct cp where cp.command.id = :commandId")
+    void deleteByCommandId(@Param("commandId") String commandId);
+}
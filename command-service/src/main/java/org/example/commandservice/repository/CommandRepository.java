@@ -1,10 +1,41 @@
 package org.example.commandservice.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.commandservice.entity.Command;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface CommandRepository extends JpaRepository<Command, String> {
     List<Command> findByClientId(String clientId);
-}
\ No newline at end of file
+
+    // Newest first, read from the (client_id, date desc) index range of the client
+    Slice<Command> findByClientIdOrderByDateDesc(String clientId, Pageable pageable);
+
+    // Slice skips the count query a Page would need
+    Slice<Command> findSliceBy(Pageable pageable);
+
+    // Keyset pagination: the next page starts right after the last id of the previous one
+    List<Command> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    // Must be consumed inside a transaction so the JDBC cursor stays open
+    @Query("select c from Command c")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Command> streamAll();
+
+    boolean existsByIdAndStatus(String id, String status);
+
+    // Only a PENDING order moves on: returns 0 when it was completed (or deleted) in the meantime
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Command c set c.status = :status where c.id = :id and c.status = 'PENDING'")
+    int completePending(@Param("id") String id, @Param("status") String status);
+}
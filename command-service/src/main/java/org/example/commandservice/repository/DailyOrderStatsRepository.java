@@ -0,0 +1,25 @@
+package org.example.commandservice.repository;
+
+import org.example.commandservice.dto.DailyRevenueDTO;
+import org.example.commandservice.entity.DailyOrderStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyOrderStatsRepository extends JpaRepository<DailyOrderStats, String> {
+
+    // Creates the row on the first order of the day and shard: ON CONFLICT on PostgreSQL, MERGE on H2
+    @Modifying
+    @Query("insert into DailyOrderStats s (id, day, shard, orderCount, revenue) values (:id, :day, :shard, :orders, :revenue) " +
+            "on conflict(id) do update set orderCount = s.orderCount + excluded.orderCount, revenue = s.revenue + excluded.revenue")
+    int add(@Param("id") String id, @Param("day") LocalDate day, @Param("shard") int shard,
+            @Param("orders") long orders, @Param("revenue") double revenue);
+
+    @Query("select new org.example.commandservice.dto.DailyRevenueDTO(s.day, sum(s.orderCount), sum(s.revenue)) " +
+            "from DailyOrderStats s where s.day between :from and :to group by s.day order by s.day")
+    List<DailyRevenueDTO> findDailyRevenue(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
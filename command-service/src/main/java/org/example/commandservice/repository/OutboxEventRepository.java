@@ -0,0 +1,18 @@
+package org.example.commandservice.repository;
+
+import org.example.commandservice.entity.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, String> {
+
+    @Query("select e from OutboxEvent e where e.processedAt is null and e.availableAt <= :now order by e.availableAt")
+    List<OutboxEvent> findDue(@Param("now") Instant now, Limit limit);
+
+    List<OutboxEvent> findByCommandId(String commandId);
+}
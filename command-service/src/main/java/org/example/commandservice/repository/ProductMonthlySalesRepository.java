@@ -0,0 +1,32 @@
+package org.example.commandservice.repository;
+
+import org.example.commandservice.dto.ProductSalesDTO;
+import org.example.commandservice.entity.ProductMonthlySales;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ProductMonthlySalesRepository extends JpaRepository<ProductMonthlySales, String> {
+
+    // Creates the row on the first sale of the product in the month and shard, like DailyOrderStatsRepository.add
+    @Modifying
+    @Query("insert into ProductMonthlySales s (id, month, productId, productName, shard, quantity, revenue) " +
+            "values (:id, :month, :productId, :productName, :shard, :quantity, :revenue) " +
+            "on conflict(id) do update set quantity = s.quantity + excluded.quantity, revenue = s.revenue + excluded.revenue")
+    int add(@Param("id") String id, @Param("month") LocalDate month, @Param("productId") String productId,
+            @Param("productName") String productName, @Param("shard") int shard,
+            @Param("quantity") long quantity, @Param("revenue") double revenue);
+
+    @Query("select new org.example.commandservice.dto.ProductSalesDTO(s.productId, max(s.productName), sum(s.quantity), sum(s.revenue)) " +
+            "from ProductMonthlySales s where s.month between :from and :to group by s.productId order by sum(s.revenue) desc")
+    List<ProductSalesDTO> findTopByRevenue(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+
+    @Query("select new org.example.commandservice.dto.ProductSalesDTO(s.productId, max(s.productName), sum(s.quantity), sum(s.revenue)) " +
+            "from ProductMonthlySales s where s.month between :from and :to group by s.productId order by sum(s.quantity) desc")
+    List<ProductSalesDTO> findTopByQuantity(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+}
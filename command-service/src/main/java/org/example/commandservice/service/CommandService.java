@@ -1,47 +1,83 @@
 package org.example.commandservice.service;
 
+import feign.FeignException;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
 import org.example.commandservice.dto.CommandProductDTO;
 import org.example.commandservice.dto.CommandProductResponseDTO;
 import org.example.commandservice.dto.CommandRequestDTO;
 import org.example.commandservice.dto.CommandResponseDTO;
-import org.example.commandservice.dto.QuantityChangeDTO;
+import org.example.commandservice.dto.StockReservationDTO;
 import org.example.commandservice.feign.ProductRestClient;
 import org.example.commandservice.entity.Command;
 import org.example.commandservice.entity.CommandProduct;
 import org.example.commandservice.entity.Product;
 import org.example.commandservice.repository.CommandProductRepository;
 import org.example.commandservice.repository.CommandRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 @AllArgsConstructor
 public class CommandService {
 
+    private static final Logger log = LoggerFactory.getLogger(CommandService.class);
+
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    // Lower than any UUID, and still a valid value once ids are stored as native uuid
+    private static final String FIRST_ID = "00000000-0000-0000-0000-000000000000";
+
     private final CommandRepository commandRepository;
     private final CommandProductRepository commandProductRepository;
     private final ProductRestClient productRestClient;
+    private final ProductCache productCache;
+    private final EntityManager entityManager;
+    private final OrderOutbox orderOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderAnalytics orderAnalytics;
 
+    // Products are read and validated before a transaction is opened, so no connection is held during that call
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Observed(name = "command.create", contextualName = "create-command")
     public CommandResponseDTO createCommand(CommandRequestDTO commandRequestDTO) {
-        Command command = new Command();
-        command.setId(UUID.randomUUID().toString());
-        command.setDate(LocalDateTime.now());
-        command.setStatus("PENDING");
-        command.setAmount(0.0);
-
-
         double totalAmount = 0.0;
 
+        // Fetch every ordered product in a single call to product-service
+        Map<String, Product> products = findProductsByIds(commandRequestDTO.getProducts());
+
         // Calculate total amount and validate products
         for (CommandProductDTO productDTO : commandRequestDTO.getProducts()) {
-            Product product = productRestClient.findProductById(productDTO.getProductId());
+            Product product = products.get(productDTO.getProductId());
             if (product == null) {
                 throw new RuntimeException("Product not found with id: " + productDTO.getProductId());
             }
@@ -54,104 +90,241 @@ public class CommandService {
             }
             totalAmount += product.getPrice() * productDTO.getQuantity();
         }
+        double amount = totalAmount;
 
-        command.setAmount(totalAmount);
+        if (orderOutbox.isEnabled()) {
+            // The order stays PENDING; its stock is reserved in the background from the outbox event
+            // committed together with it
+            return transactionTemplate.execute(tx -> {
+                Command savedCommand = saveCommand(commandRequestDTO, products, amount);
+                orderOutbox.requestReservation(savedCommand.getId(), commandRequestDTO.getProducts());
+                return mapToResponseDTO(savedCommand, false);
+            });
+        }
+
+        // The order is committed PENDING before its stock is reserved, so no transaction is open during that call;
+        // an order that cannot be confirmed is removed and its reservation released
+        Command savedCommand = transactionTemplate.execute(tx -> saveCommand(commandRequestDTO, products, amount));
+        // Reserve the stock of all ordered products at once; product-service rejects the whole order if any is short
+        StockReservationDTO reservation = StockReservationDTO.forOrder(savedCommand.getId(), commandRequestDTO.getProducts());
+        List<Product> reservedProducts;
+        try {
+            reservedProducts = productRestClient.reserveProducts(reservation);
+        } catch (RuntimeException e) {
+            // Released even when the outcome is unknown: product-service then ignores the reservation if it still comes in
+            discard(savedCommand, e instanceof FeignException.Conflict ? null : reservation);
+            throw e;
+        }
+
+        CommandResponseDTO response;
+        try {
+            response = transactionTemplate.execute(tx -> {
+                if (commandRepository.completePending(savedCommand.getId(), Command.CONFIRMED) == 0) {
+                    throw new RuntimeException("Command removed before it was confirmed: " + savedCommand.getId());
+                }
+                savedCommand.setStatus(Command.CONFIRMED);
+                orderAnalytics.recordConfirmed(savedCommand, savedCommand.getProducts());
+                return mapToResponseDTO(savedCommand, false);
+            });
+        } catch (RuntimeException e) {
+            discard(savedCommand, reservation);
+            throw e;
+        }
+        // Refresh cached products with their post-reservation stock, now that the order is committed
+        productCache.putAll(reservedProducts);
+        return response;
+    }
+
+    // Removes an order that could not be confirmed and releases its stock when it may have been reserved.
+    // Best effort: the caller gets the original failure either way.
+    private void discard(Command command, StockReservationDTO reservation) {
+        if (reservation != null) {
+            try {
+                productRestClient.releaseProducts(reservation);
+            } catch (RuntimeException e) {
+                log.warn("Could not release the stock reserved for command {}", command.getId(), e);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                commandProductRepository.deleteByCommandId(command.getId());
+                commandRepository.deleteById(command.getId());
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not remove unconfirmed command {}", command.getId(), e);
+        }
+    }
+
+    private Command saveCommand(CommandRequestDTO commandRequestDTO, Map<String, Product> products, double amount) {
+        Command command = new Command();
+        command.setId(UuidV7.generate());
+        command.setDate(LocalDateTime.now());
+        command.setStatus(Command.PENDING);
+        command.setAmount(amount);
+        command.setClientId(currentClientId());
         Command savedCommand = commandRepository.save(command);
 
-        // Create and save command products
+        // Create and save command products; saveAll lets Hibernate send the inserts as JDBC batches
+        List<CommandProduct> lines = new ArrayList<>(commandRequestDTO.getProducts().size());
         for (CommandProductDTO productDTO : commandRequestDTO.getProducts()) {
-            Product product = productRestClient.findProductById(productDTO.getProductId());
+            Product product = products.get(productDTO.getProductId());
             CommandProduct commandProduct = new CommandProduct();
-            commandProduct.setId(UUID.randomUUID().toString());
+            commandProduct.setId(UuidV7.generate());
             commandProduct.setCommand(savedCommand);
             commandProduct.setProductId(productDTO.getProductId());
             commandProduct.setQuantity(productDTO.getQuantity());
+            commandProduct.setProductName(product.getName());
+            commandProduct.setUnitPrice(product.getPrice());
+            commandProduct.setLineTotal(product.getPrice() * productDTO.getQuantity());
             commandProduct.setProduct(product);
-            commandProductRepository.save(commandProduct);
-
-            // Update product quantity in product service (decrease by the ordered quantity)
-            QuantityChangeDTO quantityChange = QuantityChangeDTO.builder()
-                    .quantityChange(-productDTO.getQuantity())
-                    .build();
-            productRestClient.updateProductQuantity(productDTO.getProductId(), quantityChange);
+            lines.add(commandProduct);
         }
-
-        return mapToResponseDTO(savedCommand);
+        commandProductRepository.saveAll(lines);
+        savedCommand.setProducts(lines);
+        return savedCommand;
     }
 
     public CommandResponseDTO updateCommand(String id, CommandRequestDTO commandRequestDTO) {
         Command command = commandRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Command not found with id: " + id));
 
+        boolean confirmed = Command.CONFIRMED.equals(command.getStatus());
+        if (confirmed) {
+            orderAnalytics.recordRemoved(command, commandProductRepository.findByCommandId(id));
+        }
+
         // Delete existing command products
-        List<CommandProduct> existingProducts = commandProductRepository.findAll().stream()
-                .filter(cp -> cp.getCommand().getId().equals(id))
-                .collect(Collectors.toList());
-        commandProductRepository.deleteAll(existingProducts);
+        commandProductRepository.deleteByCommandId(id);
 
         // Create new command products
+        Map<String, Product> products = findProductsByIds(commandRequestDTO.getProducts());
         double totalAmount = 0.0;
+        List<CommandProduct> lines = new ArrayList<>(commandRequestDTO.getProducts().size());
         for (CommandProductDTO productDTO : commandRequestDTO.getProducts()) {
-            Product product = productRestClient.findProductById(productDTO.getProductId());
+            Product product = products.get(productDTO.getProductId());
             if (product == null) {
                 throw new RuntimeException("Product not found with id: " + productDTO.getProductId());
             }
 
             CommandProduct commandProduct = new CommandProduct();
-            commandProduct.setId(UUID.randomUUID().toString());
+            commandProduct.setId(UuidV7.generate());
             commandProduct.setCommand(command);
             commandProduct.setProductId(productDTO.getProductId());
             commandProduct.setQuantity(productDTO.getQuantity());
+            commandProduct.setProductName(product.getName());
+            commandProduct.setUnitPrice(product.getPrice());
+            commandProduct.setLineTotal(product.getPrice() * productDTO.getQuantity());
             commandProduct.setProduct(product);
-            commandProductRepository.save(commandProduct);
+            lines.add(commandProduct);
 
             totalAmount += product.getPrice() * productDTO.getQuantity();
         }
+        commandProductRepository.saveAll(lines);
 
         command.setAmount(totalAmount);
         Command updatedCommand = commandRepository.save(command);
-        return mapToResponseDTO(updatedCommand);
+        if (confirmed) {
+            orderAnalytics.recordConfirmed(updatedCommand, lines);
+        }
+        return mapToResponseDTO(updatedCommand, false);
     }
 
     public void deleteCommand(String id) {
-        if (!commandRepository.existsById(id)) {
-            throw new RuntimeException("Command not found with id: " + id);
+        Command command = commandRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Command not found with id: " + id));
+        if (Command.CONFIRMED.equals(command.getStatus())) {
+            orderAnalytics.recordRemoved(command, commandProductRepository.findByCommandId(id));
         }
 
         // Delete associated command products
-        List<CommandProduct> commandProducts = commandProductRepository.findAll().stream()
-                .filter(cp -> cp.getCommand().getId().equals(id))
-                .collect(Collectors.toList());
-        commandProductRepository.deleteAll(commandProducts);
+        commandProductRepository.deleteByCommandId(id);
 
         commandRepository.deleteById(id);
     }
 
     @Transactional(readOnly = true)
-    public List<CommandResponseDTO> getAllCommands() {
-        return commandRepository.findAll().stream()
-                .map(this::mapToResponseDTO)
-                .collect(Collectors.toList());
+    public List<CommandResponseDTO> getAllCommands(boolean live) {
+        return mapToResponseDTOs(commandRepository.findAll(), live);
+    }
+
+    @Transactional(readOnly = true)
+    @Observed(name = "command.page", contextualName = "get-commands-page")
+    public Slice<CommandResponseDTO> getCommandsPage(int page, int size, boolean live) {
+        Pageable pageable = PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), Sort.by("id"));
+        Slice<Command> commands = commandRepository.findSliceBy(pageable);
+        return new SliceImpl<>(mapToResponseDTOs(commands.getContent(), live), pageable, commands.hasNext());
+    }
+
+    @Transactional(readOnly = true)
+    public List<CommandResponseDTO> getCommandsAfter(String afterId, int limit, boolean live) {
+        return mapToResponseDTOs(commandRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? FIRST_ID : afterId, Limit.of(Math.min(limit, MAX_PAGE_SIZE))), live);
     }
 
+    // Reads commands from a cursor and hands them to the consumer chunk by chunk, so only one chunk is ever in memory
     @Transactional(readOnly = true)
-    public CommandResponseDTO getCommandById(String id) {
+    public void streamAllCommands(Consumer<CommandResponseDTO> consumer) {
+        try (Stream<Command> commands = commandRepository.streamAll()) {
+            List<Command> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            for (Command command : (Iterable<Command>) commands::iterator) {
+                chunk.add(command);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    mapToResponseDTOs(chunk, false).forEach(consumer);
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+            mapToResponseDTOs(chunk, false).forEach(consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CommandResponseDTO getCommandById(String id, boolean live) {
         Command command = commandRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Command not found with id: " + id));
-        return mapToResponseDTO(command);
+        return mapToResponseDTO(command, live);
+    }
+
+    // Loads the lines of all given commands with one indexed query per chunk instead of one per command
+    private List<CommandResponseDTO> mapToResponseDTOs(List<Command> commands, boolean live) {
+        List<String> commandIds = commands.stream().map(Command::getId).collect(Collectors.toList());
+        Map<String, List<CommandProduct>> linesByCommand = new HashMap<>();
+        for (int i = 0; i < commandIds.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            List<String> chunk = commandIds.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, commandIds.size()));
+            for (CommandProduct cp : commandProductRepository.findByCommandIdIn(chunk)) {
+                linesByCommand.computeIfAbsent(cp.getCommand().getId(), k -> new ArrayList<>()).add(cp);
+            }
+        }
+        Map<String, Product> products = findCachedProducts(linesByCommand.values().stream().flatMap(List::stream), live);
+        return commands.stream()
+                .map(command -> mapToResponseDTO(command, linesByCommand.getOrDefault(command.getId(), List.of()), products))
+                .collect(Collectors.toList());
+    }
+
+    private CommandResponseDTO mapToResponseDTO(Command command, boolean live) {
+        List<CommandProduct> commandProducts = commandProductRepository.findByCommandId(command.getId());
+        return mapToResponseDTO(command, commandProducts, findCachedProducts(commandProducts.stream(), live));
     }
 
-    private CommandResponseDTO mapToResponseDTO(Command command) {
-        List<CommandProductResponseDTO> productDTOs = commandProductRepository.findAll().stream()
-                .filter(cp -> cp.getCommand().getId().equals(command.getId()))
+    private CommandResponseDTO mapToResponseDTO(Command command, List<CommandProduct> commandProducts, Map<String, Product> products) {
+        List<CommandProductResponseDTO> productDTOs = commandProducts.stream()
                 .map(cp -> {
-                    Product product = productRestClient.findProductById(cp.getProductId());
+                    Product product = products.get(cp.getProductId());
                     cp.setProduct(product);
-                    return CommandProductResponseDTO.builder()
+                    CommandProductResponseDTO.CommandProductResponseDTOBuilder builder = CommandProductResponseDTO.builder()
                             .id(cp.getId())
-                            .product(product)
+                            .productId(cp.getProductId())
                             .quantity(cp.getQuantity())
-                            .build();
+                            .product(product);
+                    if (hasSnapshot(cp)) {
+                        builder.productName(cp.getProductName())
+                                .unitPrice(cp.getUnitPrice())
+                                .lineTotal(cp.getLineTotal());
+                    } else if (product != null) {
+                        builder.productName(product.getName())
+                                .unitPrice(product.getPrice())
+                                .lineTotal(product.getPrice() * cp.getQuantity());
+                    }
+                    return builder.build();
                 })
                 .collect(Collectors.toList());
 
@@ -164,10 +337,59 @@ public class CommandService {
                 .build();
     }
 
+    private Map<String, Product> findProductsByIds(List<CommandProductDTO> productDTOs) {
+        Set<String> productIds = productDTOs.stream()
+                .map(CommandProductDTO::getProductId)
+                .collect(Collectors.toSet());
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return productRestClient.findProductsByIds(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private static boolean hasSnapshot(CommandProduct commandProduct) {
+        return commandProduct.getUnitPrice() != null;
+    }
+
+    // Display data only: served from the product cache, which loads all misses in one batch call.
+    // Lines carrying a snapshot need no product-service call unless live data is requested.
+    private Map<String, Product> findCachedProducts(Stream<CommandProduct> commandProducts, boolean live) {
+        Set<String> productIds = commandProducts
+                .filter(cp -> live || !hasSnapshot(cp))
+                .map(CommandProduct::getProductId)
+                .collect(Collectors.toSet());
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return productCache.getAll(productIds);
+    }
+
     @Transactional(readOnly = true)
-    public List<CommandResponseDTO> getCommandsByClientId(String clientId) {
-        return commandRepository.findByClientId(clientId).stream()
-                .map(this::mapToResponseDTO)
-                .collect(Collectors.toList());
+    public List<CommandResponseDTO> getCommandsByClientId(String clientId, boolean live) {
+        return mapToResponseDTOs(commandRepository.findByClientId(clientId), live);
+    }
+
+    // Orders of the authenticated client, newest first
+    @Transactional(readOnly = true)
+    @Observed(name = "command.client-page", contextualName = "get-my-commands-page")
+    public Slice<CommandResponseDTO> getMyCommandsPage(int page, int size, boolean live) {
+        String clientId = currentClientId();
+        if (clientId == null) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No client identity in the current request");
+        }
+        Pageable pageable = PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE));
+        Slice<Command> commands = commandRepository.findByClientIdOrderByDateDesc(clientId, pageable);
+        return new SliceImpl<>(mapToResponseDTOs(commands.getContent(), live), pageable, commands.hasNext());
+    }
+
+    // Keycloak username of the caller, or its subject when the token has no username
+    private static String currentClientId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            return null;
+        }
+        String username = jwt.getClaimAsString("preferred_username");
+        return username != null ? username : jwt.getSubject();
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package org.example.commandservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.commandservice.entity.OutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Broker stand-in for local runs and tests: a bounded in-memory queue drained by one consumer thread,
+// which hands events to the handler in batches. Nothing is lost on a crash, as events stay in the
+// outbox until handled and are published again on the next start.
+@Component
+public class InProcessOrderEventBroker implements OrderEventBroker {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessOrderEventBroker.class);
+
+    private final BlockingQueue<OutboxEvent> queue;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final StockReservationHandler handler;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    public InProcessOrderEventBroker(StockReservationHandler handler,
+                                     @Value("${command.pipeline.batch-size:50}") int batchSize,
+                                     @Value("${command.pipeline.linger-ms:20}") long lingerMillis,
+                                     @Value("${command.pipeline.queue-capacity:10000}") int queueCapacity) {
+        this.handler = handler;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.consumer = new Thread(this::consume, "order-event-broker");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public boolean publish(OutboxEvent event) {
+        if (!inFlight.add(event.getId())) {
+            return false;
+        }
+        if (!queue.offer(event)) {
+            inFlight.remove(event.getId());
+            return false;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        consumer.interrupt();
+    }
+
+    private void consume() {
+        while (running) {
+            List<OutboxEvent> batch = new ArrayList<>(batchSize);
+            try {
+                OutboxEvent first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Linger briefly so orders placed at the same time share one reservation call
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    OutboxEvent next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                handler.handle(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Unhandled events stay in the outbox and are published again
+                log.warn("Could not handle a batch of {} order event(s)", batch.size(), e);
+            } finally {
+                batch.forEach(event -> inFlight.remove(event.getId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.commandservice.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.commandservice.dto.ClientTotalsDTO;
+import org.example.commandservice.dto.DailyRevenueDTO;
+import org.example.commandservice.dto.ProductSalesDTO;
+import org.example.commandservice.entity.ClientOrderStats;
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.entity.CommandProduct;
+import org.example.commandservice.entity.DailyOrderStats;
+import org.example.commandservice.entity.ProductMonthlySales;
+import org.example.commandservice.repository.ClientOrderStatsRepository;
+import org.example.commandservice.repository.DailyOrderStatsRepository;
+import org.example.commandservice.repository.ProductMonthlySalesRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+// Keeps per-day, per-product-month and per-client totals of confirmed orders up to date in the
+// transaction that confirms, changes or deletes an order, so reports read a few summary rows
+// instead of scanning the order tables.
+@Service
+@Transactional
+public class OrderAnalytics {
+
+    private static final int REBUILD_FLUSH_SIZE = 500;
+
+    private final DailyOrderStatsRepository dailyOrderStatsRepository;
+    private final ProductMonthlySalesRepository productMonthlySalesRepository;
+    private final ClientOrderStatsRepository clientOrderStatsRepository;
+    private final EntityManager entityManager;
+    private final int shards;
+
+    public OrderAnalytics(DailyOrderStatsRepository dailyOrderStatsRepository,
+                          ProductMonthlySalesRepository productMonthlySalesRepository,
+                          ClientOrderStatsRepository clientOrderStatsRepository,
+                          EntityManager entityManager,
+                          @Value("${analytics.shards:8}") int shards) {
+        this.dailyOrderStatsRepository = dailyOrderStatsRepository;
+        this.productMonthlySalesRepository = productMonthlySalesRepository;
+        this.clientOrderStatsRepository = clientOrderStatsRepository;
+        this.entityManager = entityManager;
+        this.shards = shards;
+    }
+
+    // Called last in the confirming transaction, which then holds the summary row locks only until its commit
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordConfirmed(Command command, List<CommandProduct> lines) {
+        record(command, lines, 1);
+    }
+
+    // Takes back what recordConfirmed added, before a confirmed order is changed or deleted
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRemoved(Command command, List<CommandProduct> lines) {
+        record(command, lines, -1);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DailyRevenueDTO> getDailyRevenue(LocalDate from, LocalDate to) {
+        return dailyOrderStatsRepository.findDailyRevenue(from, to);
+    }
+
+    // Sales are kept per month: from and to select the months they fall in
+    @Transactional(readOnly = true)
+    public List<ProductSalesDTO> getTopProducts(LocalDate from, LocalDate to, boolean byQuantity, int limit) {
+        LocalDate fromMonth = from.withDayOfMonth(1);
+        LocalDate toMonth = to.withDayOfMonth(1);
+        return byQuantity
+                ? productMonthlySalesRepository.findTopByQuantity(fromMonth, toMonth, Limit.of(limit))
+                : productMonthlySalesRepository.findTopByRevenue(fromMonth, toMonth, Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ClientTotalsDTO> getTopClients(int limit) {
+        return clientOrderStatsRepository.findByOrderByRevenueDesc(Limit.of(limit)).stream()
+                .map(OrderAnalytics::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ClientTotalsDTO> getClientTotals(String clientId) {
+        return clientOrderStatsRepository.findById(clientId).map(OrderAnalytics::toDTO);
+    }
+
+    // Recomputes every summary from the confirmed orders, e.g. after a bulk import or to fix drift.
+    // Scans the order tables: meant to be run by an admin while few orders are being placed.
+    public void rebuild() {
+        dailyOrderStatsRepository.deleteAllInBatch();
+        productMonthlySalesRepository.deleteAllInBatch();
+        clientOrderStatsRepository.deleteAllInBatch();
+
+        List<Object[]> days = entityManager.createQuery(
+                        "select cast(c.date as LocalDate), count(c), sum(c.amount) from Command c " +
+                                "where c.status = :status group by cast(c.date as LocalDate)", Object[].class)
+                .setParameter("status", Command.CONFIRMED)
+                .getResultList();
+        int rows = 0;
+        for (Object[] day : days) {
+            LocalDate date = (LocalDate) day[0];
+            persist(new DailyOrderStats(dailyId(date, 0), date, 0, (Long) day[1], (Double) day[2]), ++rows);
+        }
+
+        List<Object[]> sales = entityManager.createQuery(
+                        "select year(c.date), month(c.date), cp.productId, max(cp.productName), sum(cp.quantity), sum(coalesce(cp.lineTotal, 0.0)) " +
+                                "from CommandProduct cp join cp.command c where c.status = :status " +
+                                "group by year(c.date), month(c.date), cp.productId", Object[].class)
+                .setParameter("status", Command.CONFIRMED)
+                .getResultList();
+        for (Object[] sale : sales) {
+            LocalDate month = LocalDate.of((Integer) sale[0], (Integer) sale[1], 1);
+            String productId = (String) sale[2];
+            persist(new ProductMonthlySales(productId(month, productId, 0), month, productId, (String) sale[3], 0,
+                    (Long) sale[4], (Double) sale[5]), ++rows);
+        }
+
+        List<Object[]> clients = entityManager.createQuery(
+                        "select c.clientId, count(c), sum(c.amount) from Command c " +
+                                "where c.status = :status and c.clientId is not null group by c.clientId", Object[].class)
+                .setParameter("status", Command.CONFIRMED)
+                .getResultList();
+        for (Object[] client : clients) {
+            persist(new ClientOrderStats((String) client[0], (Long) client[1], (Double) client[2]), ++rows);
+        }
+    }
+
+    private void record(Command command, List<CommandProduct> lines, int sign) {
+        LocalDate day = command.getDate().toLocalDate();
+        LocalDate month = day.withDayOfMonth(1);
+        // Concurrent orders of the same day or product update one of several rows instead of queueing on a single one
+        int shard = ThreadLocalRandom.current().nextInt(shards);
+
+        dailyOrderStatsRepository.add(dailyId(day, shard), day, shard, sign, sign * command.getAmount());
+
+        // Rows are always updated in the same order (day, products by id, client), so two orders can't deadlock
+        Map<String, List<CommandProduct>> linesByProduct = lines.stream()
+                .collect(Collectors.groupingBy(CommandProduct::getProductId, TreeMap::new, Collectors.toList()));
+        linesByProduct.forEach((productId, productLines) -> {
+            long quantity = productLines.stream().mapToLong(CommandProduct::getQuantity).sum();
+            // Lines saved before price snapshots existed count for their units only
+            double revenue = productLines.stream().mapToDouble(cp -> cp.getLineTotal() == null ? 0 : cp.getLineTotal()).sum();
+            productMonthlySalesRepository.add(productId(month, productId, shard), month, productId,
+                    productLines.get(0).getProductName(), shard, sign * quantity, sign * revenue);
+        });
+
+        // One order per client at a time is the norm: no sharding, so the top clients can be read from an index
+        if (command.getClientId() != null) {
+            clientOrderStatsRepository.add(command.getClientId(), sign, sign * command.getAmount());
+        }
+    }
+
+    private void persist(Object row, int rows) {
+        entityManager.persist(row);
+        if (rows % REBUILD_FLUSH_SIZE == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    private static String dailyId(LocalDate day, int shard) {
+        return day + "#" + shard;
+    }
+
+    private static String productId(LocalDate month, String productId, int shard) {
+        return month + "#" + productId + "#" + shard;
+    }
+
+    private static ClientTotalsDTO toDTO(ClientOrderStats stats) {
+        return ClientTotalsDTO.builder()
+                .clientId(stats.getClientId())
+                .orders(stats.getOrderCount())
+                .revenue(stats.getRevenue())
+                .build();
+    }
+}
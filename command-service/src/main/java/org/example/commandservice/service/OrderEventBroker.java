@@ -0,0 +1,10 @@
+package org.example.commandservice.service;
+
+import org.example.commandservice.entity.OutboxEvent;
+
+// Where the outbox dispatcher publishes order events; InProcessOrderEventBroker stands in for a real broker
+public interface OrderEventBroker {
+
+    // False when the event is already queued or being handled, or the broker is full; the dispatcher tries again later
+    boolean publish(OutboxEvent event);
+}
@@ -0,0 +1,147 @@
+package org.example.commandservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.commandservice.dto.CommandProductDTO;
+import org.example.commandservice.dto.StockReservationDTO;
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.entity.OutboxEvent;
+import org.example.commandservice.repository.CommandProductRepository;
+import org.example.commandservice.repository.CommandRepository;
+import org.example.commandservice.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Transactional side of the order pipeline: outbox rows are written with the order, and each
+// event is marked processed in the same transaction that moves its order out of PENDING.
+@Service
+@Transactional
+public class OrderOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final CommandRepository commandRepository;
+    private final CommandProductRepository commandProductRepository;
+    private final OrderAnalytics orderAnalytics;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+
+    public OrderOutbox(OutboxEventRepository outboxEventRepository,
+                       CommandRepository commandRepository,
+                       CommandProductRepository commandProductRepository,
+                       OrderAnalytics orderAnalytics,
+                       ObjectMapper objectMapper,
+                       @Value("${command.pipeline.async:false}") boolean enabled,
+                       @Value("${command.pipeline.max-attempts:10}") int maxAttempts,
+                       @Value("${command.pipeline.backoff:1s}") Duration backoff,
+                       @Value("${command.pipeline.max-backoff:1m}") Duration maxBackoff) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.commandRepository = commandRepository;
+        this.commandProductRepository = commandProductRepository;
+        this.orderAnalytics = orderAnalytics;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Part of the transaction that saves the order, so both are committed or neither is
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void requestReservation(String commandId, List<CommandProductDTO> items) {
+        outboxEventRepository.save(newEvent(commandId, OutboxEvent.STOCK_RESERVATION_REQUESTED, writePayload(commandId, items)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<OutboxEvent> findDue(int limit) {
+        return outboxEventRepository.findDue(Instant.now(), Limit.of(limit));
+    }
+
+    // A reservation made for an order that was deleted or rejected meanwhile is compensated by a release event
+    // written in the same transaction. An order already CONFIRMED was completed by an earlier delivery of this
+    // event: product-service applies a reservation once per order, so there is nothing to release.
+    public String complete(OutboxEvent event, boolean reserved) {
+        String status = reserved ? Command.CONFIRMED : Command.REJECTED;
+        int updated = commandRepository.completePending(event.getCommandId(), status);
+        markProcessed(event);
+        if (updated == 0) {
+            if (reserved && !commandRepository.existsByIdAndStatus(event.getCommandId(), Command.CONFIRMED)) {
+                outboxEventRepository.save(newEvent(event.getCommandId(), OutboxEvent.STOCK_RELEASE_REQUESTED, event.getPayload()));
+            }
+            return null;
+        }
+        if (reserved) {
+            orderAnalytics.recordConfirmed(commandRepository.findById(event.getCommandId()).orElseThrow(),
+                    commandProductRepository.findByCommandId(event.getCommandId()));
+        }
+        return status;
+    }
+
+    public void markProcessed(OutboxEvent event) {
+        event.setProcessedAt(Instant.now());
+        outboxEventRepository.save(event);
+    }
+
+    // Transient failure: published again after an exponential backoff. A reservation that keeps failing
+    // rejects its order; a release is retried until it goes through.
+    public boolean retryLater(OutboxEvent event) {
+        event.setAttempts(event.getAttempts() + 1);
+        if (OutboxEvent.STOCK_RESERVATION_REQUESTED.equals(event.getType()) && event.getAttempts() >= maxAttempts) {
+            complete(event, false);
+            // The last attempt may have reserved the stock before failing (read timeout, 5xx): released unless
+            // the order was confirmed. A release of a reservation that never happened only leaves a tombstone.
+            if (!commandRepository.existsByIdAndStatus(event.getCommandId(), Command.CONFIRMED)) {
+                outboxEventRepository.save(newEvent(event.getCommandId(), OutboxEvent.STOCK_RELEASE_REQUESTED, event.getPayload()));
+            }
+            return false;
+        }
+        long delay = Math.min(maxBackoff.toMillis(), backoff.toMillis() << Math.min(event.getAttempts() - 1, 20));
+        event.setAvailableAt(Instant.now().plusMillis(delay));
+        outboxEventRepository.save(event);
+        return true;
+    }
+
+    // Items are keyed by the event's order, including those of events written before payloads carried it
+    public StockReservationDTO readPayload(OutboxEvent event) {
+        try {
+            StockReservationDTO reservation = objectMapper.readValue(event.getPayload(), StockReservationDTO.class);
+            reservation.getItems().forEach(item -> item.setCommandId(event.getCommandId()));
+            return reservation;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox event " + event.getId(), e);
+        }
+    }
+
+    private String writePayload(String commandId, List<CommandProductDTO> items) {
+        try {
+            return objectMapper.writeValueAsString(StockReservationDTO.forOrder(commandId, items));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static OutboxEvent newEvent(String commandId, String type, String payload) {
+        Instant now = Instant.now();
+        OutboxEvent event = new OutboxEvent();
+        event.setId(UuidV7.generate());
+        event.setCommandId(commandId);
+        event.setType(type);
+        event.setPayload(payload);
+        event.setCreatedAt(now);
+        event.setAvailableAt(now);
+        return event;
+    }
+}
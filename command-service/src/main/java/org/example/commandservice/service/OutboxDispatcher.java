@@ -0,0 +1,37 @@
+package org.example.commandservice.service;
+
+import org.example.commandservice.config.ServiceIdentity;
+import org.example.commandservice.entity.OutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Polls the outbox for due events and publishes them to the broker
+@Component
+public class OutboxDispatcher {
+
+    private final OrderOutbox orderOutbox;
+    private final OrderEventBroker orderEventBroker;
+    private final int pollSize;
+
+    public OutboxDispatcher(OrderOutbox orderOutbox, OrderEventBroker orderEventBroker, ServiceIdentity serviceIdentity,
+                            @Value("${command.pipeline.poll-size:500}") int pollSize) {
+        // Background calls to product-service carry no user token
+        if (orderOutbox.isEnabled() && !serviceIdentity.isAvailable()) {
+            throw new IllegalStateException("command.pipeline.async requires security.internal-identity.enabled and its secret");
+        }
+        this.orderOutbox = orderOutbox;
+        this.orderEventBroker = orderEventBroker;
+        this.pollSize = pollSize;
+    }
+
+    @Scheduled(fixedDelayString = "${command.pipeline.poll-interval-ms:200}")
+    public void dispatch() {
+        if (!orderOutbox.isEnabled()) {
+            return;
+        }
+        for (OutboxEvent event : orderOutbox.findDue(pollSize)) {
+            orderEventBroker.publish(event);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.commandservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.observation.annotation.Observed;
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.feign.ProductRestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Read-side cache of product-service data used to display orders.
+// Never use it to validate stock: order creation always reads fresh products.
+@Component
+public class ProductCache {
+
+    private final LoadingCache<String, Product> cache;
+    // Outlives the TTL above so orders can still be displayed while product-service is down
+    private final Cache<String, Product> lastKnown;
+
+    public ProductCache(ProductRestClient productRestClient,
+                        ProductHydrator productHydrator,
+                        MeterRegistry meterRegistry,
+                        @Value("${product.cache.batch-enabled:true}") boolean batchEnabled,
+                        @Value("${product.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${product.cache.ttl:5m}") Duration ttl,
+                        @Value("${product.cache.stale-ttl:1h}") Duration staleTtl) {
+        this.lastKnown = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(staleTtl)
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Product load(String productId) {
+                        Product product = productRestClient.findProductById(productId);
+                        if (product != null) {
+                            lastKnown.put(productId, product);
+                        }
+                        return product;
+                    }
+
+                    // Misses of a getAll call are loaded with a single batch request, or fanned out concurrently
+                    @Override
+                    public Map<String, Product> loadAll(Set<? extends String> productIds) {
+                        Map<String, Product> products = batchEnabled
+                                ? productRestClient.findProductsByIds(Set.copyOf(productIds)).stream()
+                                        .collect(Collectors.toMap(Product::getId, Function.identity()))
+                                : productHydrator.fetchAll(Set.copyOf(productIds));
+                        lastKnown.putAll(products);
+                        return products;
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productCache");
+    }
+
+    // Concurrent misses on the same id share one load. When it fails, the last known data is served
+    // (and not cached again); the failure propagates if there is none.
+    public Product get(String productId) {
+        try {
+            return cache.get(productId);
+        } catch (RuntimeException e) {
+            Product product = lastKnown.getIfPresent(productId);
+            if (product == null) {
+                throw e;
+            }
+            return product;
+        }
+    }
+
+    @Observed(name = "product.cache.get-all", contextualName = "product-cache-get-all")
+    public Map<String, Product> getAll(Collection<String> productIds) {
+        try {
+            return cache.getAll(productIds);
+        } catch (RuntimeException e) {
+            Map<String, Product> products = lastKnown.getAllPresent(productIds);
+            if (products.size() < Set.copyOf(productIds).size()) {
+                throw e;
+            }
+            return products;
+        }
+    }
+
+    public void putAll(Collection<Product> products) {
+        products.forEach(product -> {
+            cache.put(product.getId(), product);
+            lastKnown.put(product.getId(), product);
+        });
+    }
+
+    public void invalidate(String productId) {
+        cache.invalidate(productId);
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.commandservice.service;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.PreDestroy;
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.feign.ProductRestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fetches products one by one but concurrently, for when the batch endpoint can't be used.
+// Tasks run with the caller's SecurityContext so the Feign interceptor still forwards the token,
+// and with its other thread-local context (current trace span, request cost counters).
+@Component
+public class ProductHydrator {
+
+    private static final ContextSnapshotFactory CONTEXT_SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+    private final ProductRestClient productRestClient;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor pool;
+    private final Duration timeout;
+
+    public ProductHydrator(ProductRestClient productRestClient,
+                           @Value("${product.hydration.parallelism:16}") int parallelism,
+                           @Value("${product.hydration.timeout:2s}") Duration timeout,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.productRestClient = productRestClient;
+        this.timeout = timeout;
+        if (virtualThreads) {
+            // One virtual thread per lookup: blocking on Feign I/O no longer ties up a pooled thread
+            SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("product-hydrator-");
+            taskExecutor.setVirtualThreads(true);
+            this.pool = null;
+            this.executor = withCallerContext(new ExecutorServiceAdapter(taskExecutor));
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(parallelism * 64),
+                    r -> {
+                        Thread thread = new Thread(r, "product-hydrator-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            this.pool.allowCoreThreadTimeOut(true);
+            this.executor = withCallerContext(pool);
+        }
+    }
+
+    // Fails if all products are not fetched before the deadline; unfinished lookups are cancelled
+    public Map<String, Product> fetchAll(Collection<String> productIds) {
+        List<Callable<Product>> lookups = productIds.stream()
+                .distinct()
+                .<Callable<Product>>map(id -> () -> productRestClient.findProductById(id))
+                .toList();
+        try {
+            List<Future<Product>> futures = executor.invokeAll(lookups, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            Map<String, Product> products = new HashMap<>();
+            for (Future<Product> future : futures) {
+                Product product = future.get();
+                if (product != null) {
+                    products.put(product.getId(), product);
+                }
+            }
+            return products;
+        } catch (CancellationException e) {
+            throw new RuntimeException("Timed out after " + timeout.toMillis() + " ms fetching products from product-service");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching products from product-service", e);
+        }
+    }
+
+    private static ExecutorService withCallerContext(ExecutorService executorService) {
+        return ContextExecutorService.wrap(new DelegatingSecurityContextExecutorService(executorService), CONTEXT_SNAPSHOTS::captureAll);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
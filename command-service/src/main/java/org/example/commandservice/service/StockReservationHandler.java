@@ -0,0 +1,111 @@
+package org.example.commandservice.service;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.commandservice.dto.ReservationItemDTO;
+import org.example.commandservice.dto.StockReservationDTO;
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.entity.OutboxEvent;
+import org.example.commandservice.feign.ProductRestClient;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Consumer side of the order pipeline: reserves the stock of a batch of pending orders in one call
+// to product-service, confirms or rejects them, and releases stock reserved for orders that could not be confirmed.
+@Component
+public class StockReservationHandler {
+
+    private final ProductRestClient productRestClient;
+    private final ProductCache productCache;
+    private final OrderOutbox orderOutbox;
+    private final Counter confirmed;
+    private final Counter rejected;
+    private final Counter retried;
+    private final Counter released;
+
+    public StockReservationHandler(ProductRestClient productRestClient, ProductCache productCache,
+                                   OrderOutbox orderOutbox, MeterRegistry meterRegistry) {
+        this.productRestClient = productRestClient;
+        this.productCache = productCache;
+        this.orderOutbox = orderOutbox;
+        this.confirmed = meterRegistry.counter("orders.pipeline.events", "outcome", "confirmed");
+        this.rejected = meterRegistry.counter("orders.pipeline.events", "outcome", "rejected");
+        this.retried = meterRegistry.counter("orders.pipeline.events", "outcome", "retried");
+        this.released = meterRegistry.counter("orders.pipeline.events", "outcome", "released");
+    }
+
+    public void handle(List<OutboxEvent> events) {
+        List<OutboxEvent> reservations = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (OutboxEvent.STOCK_RELEASE_REQUESTED.equals(event.getType())) {
+                release(event);
+            } else {
+                reservations.add(event);
+            }
+        }
+        if (!reservations.isEmpty()) {
+            reserve(reservations);
+        }
+    }
+
+    private void reserve(List<OutboxEvent> events) {
+        StockReservationDTO reservation;
+        try {
+            List<ReservationItemDTO> items = new ArrayList<>();
+            for (OutboxEvent event : events) {
+                items.addAll(orderOutbox.readPayload(event).getItems());
+            }
+            reservation = StockReservationDTO.builder().items(items).build();
+            productCache.putAll(productRestClient.reserveProducts(reservation));
+        } catch (FeignException.Conflict e) {
+            if (events.size() == 1) {
+                complete(events.get(0), false);
+                return;
+            }
+            // The reservation is all-or-nothing: retry the orders one by one so only the short ones are rejected
+            for (OutboxEvent event : events) {
+                reserve(List.of(event));
+            }
+            return;
+        } catch (RuntimeException e) {
+            for (OutboxEvent event : events) {
+                retryLater(event);
+            }
+            return;
+        }
+        for (OutboxEvent event : events) {
+            complete(event, true);
+        }
+    }
+
+    private void release(OutboxEvent event) {
+        try {
+            productCache.putAll(productRestClient.releaseProducts(orderOutbox.readPayload(event)));
+        } catch (RuntimeException e) {
+            retryLater(event);
+            return;
+        }
+        orderOutbox.markProcessed(event);
+        released.increment();
+    }
+
+    private void complete(OutboxEvent event, boolean reserved) {
+        String status = orderOutbox.complete(event, reserved);
+        if (Command.CONFIRMED.equals(status)) {
+            confirmed.increment();
+        } else if (Command.REJECTED.equals(status)) {
+            rejected.increment();
+        }
+    }
+
+    private void retryLater(OutboxEvent event) {
+        if (orderOutbox.retryLater(event)) {
+            retried.increment();
+        } else {
+            rejected.increment();
+        }
+    }
+}
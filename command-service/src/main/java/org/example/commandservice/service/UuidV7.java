@@ -0,0 +1,37 @@
+package org.example.commandservice.service;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+// Time-ordered UUIDs (RFC 9562 version 7): a 48-bit millisecond timestamp followed by random bits.
+// New keys land at the right edge of the primary key index instead of on random pages,
+// and sort by creation time, also as strings.
+public final class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private UuidV7() {
+    }
+
+    public static String generate() {
+        return randomUuid().toString();
+    }
+
+    public static UUID randomUuid() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < 6; i++) {
+            bytes[i] = (byte) (timestamp >>> (40 - 8 * i));
+        }
+        bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x70);
+        bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80);
+        long mostSignificant = 0;
+        long leastSignificant = 0;
+        for (int i = 0; i < 8; i++) {
+            mostSignificant = (mostSignificant << 8) | (bytes[i] & 0xff);
+            leastSignificant = (leastSignificant << 8) | (bytes[i + 8] & 0xff);
+        }
+        return new UUID(mostSignificant, leastSignificant);
+    }
+}
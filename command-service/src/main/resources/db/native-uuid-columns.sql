@@ -0,0 +1,29 @@
+-- Optional: store order ids as native uuid (16 bytes) instead of varchar(255).
+-- Smaller primary key and foreign key indexes; existing random ids convert as they are.
+-- Run once against commands_db while command-service is stopped, then append
+-- ?stringtype=unspecified to DB_URL so the String ids of the entities bind to uuid columns.
+
+BEGIN;
+
+DO $$
+DECLARE
+    fk record;
+BEGIN
+    FOR fk IN
+        SELECT conname FROM pg_constraint
+        WHERE conrelid = 'command_product'::regclass AND contype = 'f'
+    LOOP
+        EXECUTE format('ALTER TABLE command_product DROP CONSTRAINT %I', fk.conname);
+    END LOOP;
+END $$;
+
+ALTER TABLE command ALTER COLUMN id TYPE uuid USING id::uuid;
+ALTER TABLE command_product ALTER COLUMN id TYPE uuid USING id::uuid;
+ALTER TABLE command_product ALTER COLUMN command_id TYPE uuid USING command_id::uuid;
+ALTER TABLE outbox_event ALTER COLUMN id TYPE uuid USING id::uuid;
+ALTER TABLE outbox_event ALTER COLUMN command_id TYPE uuid USING command_id::uuid;
+
+ALTER TABLE command_product
+    ADD CONSTRAINT fk_command_product_command FOREIGN KEY (command_id) REFERENCES command (id);
+
+COMMIT;
@@ -0,0 +1,176 @@
+package org.example.commandservice.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.ConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent GETs against a local product-service stub through the pooled OkHttp client, which must keep
+ * one connection per thread. The benchmark compares sustained load through Feign's default HttpURLConnection
+ * client (used before feign-okhttp was on the classpath) and through the pool, logging latency percentiles
+ * and connections opened; -Dbenchmark.seconds and -Dbenchmark.threads change the load.
+ */
+class ProductClientHttpLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductClientHttpLoadTest.class);
+
+    private static final byte[] PRODUCT_JSON = "{\"id\":\"p1\",\"name\":\"phone\",\"description\":\"\",\"price\":10.0,\"quantity\":5}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final Request.Options OPTIONS = new Request.Options(1, TimeUnit.SECONDS, 3, TimeUnit.SECONDS, true);
+
+    static {
+        // The stub writes headers and body separately: without this, Nagle's algorithm delays every response by ~40 ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    // Client ports seen by the stub: one per TCP connection
+    private final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+    private HttpServer stub;
+    private ExecutorService stubExecutor;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        stubExecutor = Executors.newFixedThreadPool(64);
+        stub.setExecutor(stubExecutor);
+        stub.createContext("/products", this::handle);
+        stub.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    void pooledClientReusesOneConnectionPerThread() throws Exception {
+        int threads = 4;
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConnectionPool connectionPool = ProductClientHttpConfig.newConnectionPool(meterRegistry, threads, Duration.ofSeconds(30));
+        Client pooled = new feign.okhttp.OkHttpClient(ProductClientHttpConfig.newHttpClient(connectionPool, meterRegistry, false, true));
+
+        long[] latencies = run(pooled, threads, Duration.ofMinutes(1), 50);
+
+        assertThat(latencies).hasSize(threads * 50);
+        assertThat(connections).hasSizeLessThanOrEqualTo(threads);
+        assertThat(meterRegistry.get("product.client.connections.opened").counter().count()).isLessThanOrEqualTo(threads);
+        assertThat(meterRegistry.get("product.client.connection.acquire").tag("connection", "pooled").timer().count())
+                .isGreaterThan(latencies.length / 2);
+        assertThat(meterRegistry.get("product.client.pool.connection.count").tag("state", "idle").gauge().value()).isGreaterThan(0);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void pooledClientKeepsConnectionsUnderSustainedLoad() throws Exception {
+        int seconds = Integer.getInteger("benchmark.seconds", 3);
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConnectionPool connectionPool = ProductClientHttpConfig.newConnectionPool(meterRegistry, threads, Duration.ofSeconds(30));
+        Client pooled = new feign.okhttp.OkHttpClient(ProductClientHttpConfig.newHttpClient(connectionPool, meterRegistry, false, true));
+        Client legacy = new Client.Default(null, null);
+
+        // Warm up both clients (JIT, class loading) before measuring
+        run(legacy, threads, Duration.ofSeconds(1), Integer.MAX_VALUE);
+        run(pooled, threads, Duration.ofSeconds(1), Integer.MAX_VALUE);
+
+        connections.clear();
+        long[] legacyLatencies = run(legacy, threads, Duration.ofSeconds(seconds), Integer.MAX_VALUE);
+        int legacyConnections = connections.size();
+        connections.clear();
+        long[] pooledLatencies = run(pooled, threads, Duration.ofSeconds(seconds), Integer.MAX_VALUE);
+        int pooledConnections = connections.size();
+
+        log.info("{} threads, {} s each", threads, seconds);
+        logLatencies("HttpURLConnection", legacyLatencies, seconds, legacyConnections);
+        logLatencies("OkHttp pool", pooledLatencies, seconds, pooledConnections);
+        log.info("OkHttp pooled connection acquire: mean {} us",
+                (long) meterRegistry.get("product.client.connection.acquire").tag("connection", "pooled").timer().mean(TimeUnit.MICROSECONDS));
+    }
+
+    // Each thread sends requests until the duration is over or it has sent requestsPerThread
+    private long[] run(Client client, int threads, Duration duration, int requestsPerThread) throws Exception {
+        String url = "http://localhost:" + stub.getAddress().getPort() + "/products/p1";
+        long end = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (count < requestsPerThread && System.nanoTime() - end < 0) {
+                        long start = System.nanoTime();
+                        Request request = Request.create(Request.HttpMethod.GET, url, Map.of(), null, StandardCharsets.UTF_8, null);
+                        try (Response response = client.execute(request, OPTIONS); InputStream body = response.body().asInputStream()) {
+                            body.readAllBytes();
+                            assertThat(response.status()).isEqualTo(200);
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+            List<long[]> results = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                results.add(future.get());
+            }
+            return results.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, PRODUCT_JSON.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(PRODUCT_JSON);
+        }
+    }
+
+    private static void logLatencies(String client, long[] sortedLatencies, int seconds, int connections) {
+        log.info(String.format("%-18s %,8d req/s  %,6d connections  p50 %.0f us  p99 %.0f us  p99.9 %.0f us", client,
+                sortedLatencies.length / seconds, connections,
+                percentile(sortedLatencies, 0.50), percentile(sortedLatencies, 0.99), percentile(sortedLatencies, 0.999)));
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        return sortedLatencies[(int) Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile)] / 1_000.0;
+    }
+}
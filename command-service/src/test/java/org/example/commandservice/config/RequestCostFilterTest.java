@@ -0,0 +1,62 @@
+package org.example.commandservice.config;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCostFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCostFilter filter = new RequestCostFilter(meterRegistry);
+
+    @Test
+    void recordsFeignCallsAndSqlStatementsPerEndpoint() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/commands");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/commands");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            RequestCost.countFeignCall();
+            RequestCost.countFeignCall();
+            new SqlStatementCounter().inspect("insert into command values (?)");
+        });
+
+        assertThat(summary("http.server.requests.feign.calls").totalAmount()).isEqualTo(2);
+        assertThat(summary("http.server.requests.sql.statements").totalAmount()).isEqualTo(1);
+        // Nothing is counted outside a request
+        RequestCost.countFeignCall();
+        assertThat(summary("http.server.requests.feign.calls").count()).isEqualTo(1);
+    }
+
+    @Test
+    void countsWorkDoneOnExecutorsWrappedWithTheCallerContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/commands/1");
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/commands/{id}");
+
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) ->
+                    CompletableFuture.runAsync(RequestCost::countFeignCall,
+                            ContextExecutorService.wrap(executor)).join());
+
+            assertThat(meterRegistry.get("http.server.requests.feign.calls").tag("uri", "/commands/{id}")
+                    .summary().totalAmount()).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private DistributionSummary summary(String name) {
+        return meterRegistry.get(name).tag("method", "POST").tag("uri", "/commands").summary();
+    }
+}
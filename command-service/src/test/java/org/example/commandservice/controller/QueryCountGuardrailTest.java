@@ -0,0 +1,243 @@
+package org.example.commandservice.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.commandservice.dto.CommandProductDTO;
+import org.example.commandservice.dto.CommandRequestDTO;
+import org.example.commandservice.service.ProductCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Upper bounds on the SQL statements and product-service calls of each endpoint. Every endpoint reads
+// ORDERS orders of LINES lines: a query or call per order or line (N+1) blows the bound and fails the build.
+// Statements are counted by Hibernate statistics against H2 in PostgreSQL mode, calls by a product-service stub.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:guardrails;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "eureka.client.enabled=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryCountGuardrailTest {
+
+    private static final int ORDERS = 12;
+    private static final int LINES = 5;
+    private static final String CLIENT = "guardrail-client";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final HttpServer STUB;
+    private static final Map<String, AtomicInteger> CALLS = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            STUB = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        STUB.createContext("/products", QueryCountGuardrailTest::handle);
+        STUB.start();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductCache productCache;
+
+    private final List<String> orderIds = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void productServiceUri(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.product-service[0].uri",
+                () -> "http://localhost:" + STUB.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.stop(0);
+    }
+
+    @BeforeAll
+    void placeOrders() throws Exception {
+        for (int i = 0; i < ORDERS; i++) {
+            String body = mockMvc.perform(post("/commands").with(jwt().jwt(j -> j.claim("preferred_username", CLIENT)))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(JSON.writeValueAsString(order(i))))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            orderIds.add(JSON.readTree(body).get("id").asText());
+        }
+    }
+
+    // Live product data is then always fetched from the stub
+    @BeforeEach
+    void clearProductCache() {
+        for (int i = 0; i < LINES * 2; i++) {
+            productCache.invalidate("p" + i);
+        }
+    }
+
+    @Test
+    void placingAnOrder() throws Exception {
+        CommandRequestDTO order = order(ORDERS);
+        Cost cost = measure(post("/commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JSON.writeValueAsString(order)));
+
+        // Saved PENDING: the command and its batched lines. Confirmed: the status update, one analytics upsert
+        // for the day, each distinct product and the client, then the lines read back for the response.
+        // One product read and one reservation.
+        long products = order.getProducts().stream().map(CommandProductDTO::getProductId).distinct().count();
+        assertThat(cost.statements()).isEqualTo(2 + 1 + (1 + products + 1) + 1);
+        assertThat(cost.calls("POST /products/batch")).isEqualTo(1);
+        assertThat(cost.calls("POST /products/reservations")).isEqualTo(1);
+        assertThat(cost.totalCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void listingAllOrders() throws Exception {
+        Cost cost = measure(get("/commands"));
+
+        assertThat(cost.statements()).isLessThanOrEqualTo(2);
+        assertThat(cost.totalCalls()).isZero();
+    }
+
+    @Test
+    void listingAPageOfOrdersWithLiveProducts() throws Exception {
+        Cost cost = measure(get("/commands").param("page", "0").param("size", "20").param("live", "true"));
+
+        assertThat(cost.statements()).isLessThanOrEqualTo(2);
+        assertThat(cost.calls("POST /products/batch")).isEqualTo(1);
+        assertThat(cost.totalCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void listingOrdersAfterACursor() throws Exception {
+        Cost cost = measure(get("/commands").param("after", "").param("limit", "50"));
+
+        assertThat(cost.statements()).isLessThanOrEqualTo(2);
+        assertThat(cost.totalCalls()).isZero();
+    }
+
+    @Test
+    void listingTheCallersOrders() throws Exception {
+        Cost cost = measure(get("/commands/me").param("size", "50"));
+
+        assertThat(cost.statements()).isLessThanOrEqualTo(2);
+        assertThat(cost.totalCalls()).isZero();
+    }
+
+    @Test
+    void listingTheCallersOrdersWithoutAClientIdentityIsForbidden() throws Exception {
+        mockMvc.perform(get("/commands/me").with(authentication(new TestingAuthenticationToken("service", null, "USER"))))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void listingAClientsOrders() throws Exception {
+        Cost cost = measure(get("/commands/client/{clientId}", CLIENT).param("live", "true"));
+
+        assertThat(cost.statements()).isLessThanOrEqualTo(2);
+        assertThat(cost.totalCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void gettingAnOrder() throws Exception {
+        Cost cost = measure(get("/commands/{id}", orderIds.get(0)).param("live", "true"));
+
+        assertThat(cost.statements()).isLessThanOrEqualTo(2);
+        assertThat(cost.totalCalls()).isEqualTo(1);
+    }
+
+    private Cost measure(MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CALLS.clear();
+        mockMvc.perform(request.with(jwt().jwt(j -> j.claim("preferred_username", CLIENT))))
+                .andExpect(status().is2xxSuccessful());
+        return new Cost(statistics.getPrepareStatementCount(), Map.copyOf(CALLS));
+    }
+
+    private static CommandRequestDTO order(int n) {
+        List<CommandProductDTO> lines = new ArrayList<>();
+        for (int line = 0; line < LINES; line++) {
+            lines.add(new CommandProductDTO("p" + ((n + line) % (LINES * 2)), 1 + line));
+        }
+        return CommandRequestDTO.builder().products(lines).build();
+    }
+
+    // Answers with every product asked for, in stock
+    private static void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        CALLS.computeIfAbsent(exchange.getRequestMethod() + " " + path, k -> new AtomicInteger()).incrementAndGet();
+        byte[] request = exchange.getRequestBody().readAllBytes();
+        Object response;
+        if (path.equals("/products/batch")) {
+            List<String> ids = JSON.readValue(request, new TypeReference<>() { });
+            response = ids.stream().map(QueryCountGuardrailTest::product).toList();
+        } else {
+            response = List.of();
+        }
+        byte[] body = JSON.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, Object> product(String id) {
+        return Map.of("id", id, "name", "product " + id, "description", "", "price", 10.0, "quantity", 1000);
+    }
+
+    private record Cost(long statements, Map<String, AtomicInteger> calls) {
+
+        int calls(String call) {
+            AtomicInteger count = calls.get(call);
+            return count == null ? 0 : count.get();
+        }
+
+        int totalCalls() {
+            return calls.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.commandservice.feign;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.commandservice.dto.ReservationItemDTO;
+import org.example.commandservice.dto.StockReservationDTO;
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.service.ProductCache;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Drives the real Feign client against a local product-service stub that injects latency and failures
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:resilience;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "eureka.client.enabled=false",
+        "spring.cloud.openfeign.client.config.product-service.read-timeout=300",
+        "product.client.retry.backoff-ms=1",
+        "resilience4j.circuitbreaker.instances.product-service.sliding-window-size=4",
+        "resilience4j.circuitbreaker.instances.product-service.minimum-number-of-calls=4",
+        "resilience4j.circuitbreaker.instances.product-service.wait-duration-in-open-state=500ms",
+        "resilience4j.circuitbreaker.instances.product-service.permitted-number-of-calls-in-half-open-state=1"
+})
+class ProductRestClientResilienceTest {
+
+    private static final String PRODUCT_JSON = "{\"id\":\"p1\",\"name\":\"phone\",\"description\":\"\",\"price\":10.0,\"quantity\":5}";
+
+    private static final HttpServer STUB;
+    private static final AtomicInteger HITS = new AtomicInteger();
+    private static final AtomicInteger FAILURES_REMAINING = new AtomicInteger();
+    private static volatile long latencyMillis;
+
+    static {
+        try {
+            STUB = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        STUB.createContext("/products", ProductRestClientResilienceTest::handle);
+        STUB.start();
+    }
+
+    @Autowired
+    private ProductRestClient productRestClient;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void productServiceUri(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.product-service[0].uri",
+                () -> "http://localhost:" + STUB.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.stop(0);
+    }
+
+    @BeforeEach
+    void reset() {
+        HITS.set(0);
+        FAILURES_REMAINING.set(0);
+        latencyMillis = 0;
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
+    }
+
+    @Test
+    void idempotentGetIsRetriedOnTransientFailures() {
+        FAILURES_REMAINING.set(2);
+
+        Product product = productRestClient.findProductById("p1");
+
+        assertThat(product.getName()).isEqualTo("phone");
+        assertThat(HITS.get()).isEqualTo(3);
+        assertThat(meterRegistry.get("product.client.retries").tag("outcome", "retried").counter().count()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void callsGoThroughPooledOkHttpClient() {
+        productRestClient.findProductById("p1");
+        productRestClient.findProductById("p1");
+
+        assertThat(meterRegistry.get("product.client.connection.acquire").tag("connection", "pooled").timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("product.client.pool.connection.count").tag("state", "idle").gauge().value()).isGreaterThan(0);
+    }
+
+    @Test
+    void reservationIsNeverRetried() {
+        FAILURES_REMAINING.set(1);
+
+        assertThatThrownBy(() -> productRestClient.reserveProducts(StockReservationDTO.builder()
+                .items(List.of(new ReservationItemDTO("p1", 1, "order-1")))
+                .build()));
+
+        assertThat(HITS.get()).isEqualTo(1);
+    }
+
+    @Test
+    void openCircuitFailsValidationReadsAndRecoversThroughHalfOpenProbe() throws Exception {
+        productCache.get("p1");
+        latencyMillis = 1_000;
+
+        // Read timeouts trip the breaker; order displays keep answering from the last known data,
+        // the reads that validate an order fail
+        for (int i = 0; i < 6; i++) {
+            productCache.invalidate("p1");
+            assertThat(productCache.get("p1").getName()).isEqualTo("phone");
+        }
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("product-service");
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        int hitsWhenOpen = HITS.get();
+        assertThatThrownBy(() -> productRestClient.findProductsByIds(List.of("p1")))
+                .isInstanceOf(CallNotPermittedException.class);
+        assertThat(HITS.get()).isEqualTo(hitsWhenOpen);
+
+        latencyMillis = 0;
+        Thread.sleep(600);
+        productRestClient.findProductById("p1");
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("product.client.circuitbreaker.transitions").tag("to", "OPEN").counter().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("product.client.circuitbreaker.transitions").tag("to", "HALF_OPEN").counter().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.find("resilience4j.circuitbreaker.state").gauges()).isNotEmpty();
+        assertThat(meterRegistry.find("resilience4j.bulkhead.available.concurrent.calls").gauges()).isNotEmpty();
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (!path.equals("/products")) {
+            HITS.incrementAndGet();
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!path.equals("/products") && FAILURES_REMAINING.getAndDecrement() > 0) {
+            respond(exchange, 503, "");
+            return;
+        }
+        String body = switch (path) {
+            case "/products/p1" -> PRODUCT_JSON;
+            case "/products/batch", "/products/reservations" -> "[" + PRODUCT_JSON + "]";
+            default -> "[]";
+        };
+        respond(exchange, 200, body);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.commandservice.repository;
+
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.feign.ProductRestClient;
+import org.example.commandservice.service.CommandService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The first page of a client's order history reads the (client_id, date) index. The benchmark measures it
+ * as the command table grows: every client has the same number of orders whatever the table size, so the
+ * lookup should not depend on it. Stages default to 10k/100k/500k orders;
+ * -Dbenchmark.orders=100000,1000000,5000000 for larger tables.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ClientOrderHistoryBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientOrderHistoryBenchmarkTest.class);
+
+    private static final int ORDERS_PER_CLIENT = 50;
+    private static final int PAGE_SIZE = 20;
+    private static final int LOOKUPS = 500;
+
+    // Required by the startup data runner of CommandServiceApplication
+    @MockitoBean
+    private CommandService commandService;
+
+    @MockitoBean
+    private ProductRestClient productRestClient;
+
+    @Autowired
+    private CommandRepository commandRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void historyPageReadsOnlyTheClientIndexRange() {
+        insertOrders(0, 1_000);
+
+        // 20 clients: client 7 owns orders 7, 27, ..., 987, the latest first
+        Slice<Command> page = firstPage(7);
+        assertThat(page.getContent()).extracting(Command::getId)
+                .startsWith("history-order-987", "history-order-967")
+                .hasSize(PAGE_SIZE);
+        assertThat(page.hasNext()).isTrue();
+
+        String plan = jdbcTemplate.queryForObject(
+                "explain select * from command where client_id = 'history-0' order by date desc limit 20", String.class);
+        assertThat(plan.toUpperCase()).contains("IDX_COMMAND_CLIENT_ID_DATE");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void historyLatencyAsTableGrows() {
+        int[] stages = Arrays.stream(System.getProperty("benchmark.orders", "10000,100000,500000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        int orders = 0;
+        for (int stage : stages) {
+            insertOrders(orders, stage);
+            orders = stage;
+            log.info("{} orders: median first page of a client's history = {} us",
+                    orders, medianHistoryMicros(orders / ORDERS_PER_CLIENT));
+        }
+    }
+
+    // Order i belongs to client i % clients, where clients grows with the table
+    private void insertOrders(int from, int to) {
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        int clients = to / ORDERS_PER_CLIENT;
+        List<Object[]> commands = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            commands.add(new Object[]{"history-order-" + i, Timestamp.valueOf(start.plusSeconds(i)), Command.CONFIRMED, 10.0,
+                    "history-" + (i % clients)});
+            if (commands.size() == 10_000) {
+                flush(commands);
+            }
+        }
+        flush(commands);
+    }
+
+    private void flush(List<Object[]> commands) {
+        jdbcTemplate.batchUpdate("insert into command (id, date, status, amount, client_id) values (?, ?, ?, ?, ?)", commands);
+        commands.clear();
+    }
+
+    private double medianHistoryMicros(int clients) {
+        // Warm up before measuring
+        for (int i = 0; i < LOOKUPS; i++) {
+            firstPage(ThreadLocalRandom.current().nextInt(clients));
+        }
+        long[] samples = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int client = ThreadLocalRandom.current().nextInt(clients);
+            long start = System.nanoTime();
+            Slice<Command> page = firstPage(client);
+            samples[i] = System.nanoTime() - start;
+            assertThat(page.getContent()).hasSize(PAGE_SIZE);
+            assertThat(page.getContent().get(0).getDate()).isAfterOrEqualTo(page.getContent().get(PAGE_SIZE - 1).getDate());
+        }
+        Arrays.sort(samples);
+        return samples[LOOKUPS / 2] / 1000.0;
+    }
+
+    private Slice<Command> firstPage(int client) {
+        return commandRepository.findByClientIdOrderByDateDesc("history-" + client, PageRequest.of(0, PAGE_SIZE));
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.commandservice.repository;
+
+import org.example.commandservice.entity.CommandProduct;
+import org.example.commandservice.feign.ProductRestClient;
+import org.example.commandservice.service.CommandService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The per-order line lookup reads the command_id index, whatever the size of command_product.
+ * The benchmark measures it as the table grows: stages default to 1k/10k/100k orders (5 lines each),
+ * -Dbenchmark.orders=10000,100000,1000000 for a multi-million row table.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CommandProductLookupBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandProductLookupBenchmarkTest.class);
+
+    private static final int LINES_PER_ORDER = 5;
+    private static final int LOOKUPS = 500;
+
+    // Required by the startup data runner of CommandServiceApplication
+    @MockitoBean
+    private CommandService commandService;
+
+    @MockitoBean
+    private ProductRestClient productRestClient;
+
+    @Autowired
+    private CommandProductRepository commandProductRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lookupByCommandIdReadsTheIndex() {
+        insertOrders("lookup-", 0, 100);
+
+        List<CommandProduct> lines = commandProductRepository.findByCommandId("lookup-42");
+        assertThat(lines).extracting(CommandProduct::getId)
+                .containsExactlyInAnyOrder("lookup-42-0", "lookup-42-1", "lookup-42-2", "lookup-42-3", "lookup-42-4");
+
+        String plan = jdbcTemplate.queryForObject(
+                "explain select * from command_product where command_id = 'lookup-42'", String.class);
+        assertThat(plan.toUpperCase()).contains("IDX_COMMAND_PRODUCT_COMMAND_ID");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void lookupByCommandIdAsTableGrows() {
+        int[] stages = Arrays.stream(System.getProperty("benchmark.orders", "1000,10000,100000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        int orders = 0;
+        for (int stage : stages) {
+            insertOrders("bench-", orders, stage);
+            orders = stage;
+            log.info("{} command_product rows: median findByCommandId = {} us",
+                    orders * LINES_PER_ORDER, medianLookupMicros(orders));
+        }
+    }
+
+    private void insertOrders(String prefix, int from, int to) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> commands = new ArrayList<>();
+        List<Object[]> lines = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            commands.add(new Object[]{prefix + i, now, "PENDING", 10.0});
+            for (int l = 0; l < LINES_PER_ORDER; l++) {
+                lines.add(new Object[]{prefix + i + "-" + l, prefix + i, "p" + l, 1});
+            }
+            if (commands.size() == 10_000) {
+                flush(commands, lines);
+            }
+        }
+        flush(commands, lines);
+    }
+
+    private void flush(List<Object[]> commands, List<Object[]> lines) {
+        jdbcTemplate.batchUpdate("insert into command (id, date, status, amount) values (?, ?, ?, ?)", commands);
+        jdbcTemplate.batchUpdate("insert into command_product (id, command_id, product_id, quantity) values (?, ?, ?, ?)", lines);
+        commands.clear();
+        lines.clear();
+    }
+
+    private double medianLookupMicros(int orders) {
+        // Warm up before measuring
+        for (int i = 0; i < LOOKUPS; i++) {
+            commandProductRepository.findByCommandId("bench-" + ThreadLocalRandom.current().nextInt(orders));
+        }
+        long[] samples = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            String commandId = "bench-" + ThreadLocalRandom.current().nextInt(orders);
+            long start = System.nanoTime();
+            assertThat(commandProductRepository.findByCommandId(commandId)).hasSize(LINES_PER_ORDER);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[LOOKUPS / 2] / 1000.0;
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.commandservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.entity.CommandProduct;
+import org.example.commandservice.feign.ProductRestClient;
+import org.example.commandservice.service.CommandService;
+import org.example.commandservice.service.UuidV7;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares how order writes reach the database: the old path (random UUIDs, one merge
+ * and one INSERT per row) against JDBC batching with time-ordered ids.
+ * The benchmarks log wall time and the number of JDBC statements prepared for each.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderWriteBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderWriteBenchmarkTest.class);
+
+    private static final int LARGE_ORDER_LINES = 2_000;
+    private static final int BULK_ORDERS = 500;
+    private static final int BULK_LINES_PER_ORDER = 10;
+
+    // Required by the startup data runner of CommandServiceApplication
+    @MockitoBean
+    private CommandService commandService;
+
+    @MockitoBean
+    private ProductRestClient productRestClient;
+
+    @Autowired
+    private CommandRepository commandRepository;
+
+    @Autowired
+    private CommandProductRepository commandProductRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void orderIsWrittenInBatchesWithoutSelects() {
+        statistics.clear();
+        writeBatched(1, 120);
+
+        // one INSERT prepared for the order and one for its lines, whose rows are sent in batches
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void largeOrderIsWrittenInBatches() {
+        // Warm up both paths
+        writeLegacy(1, 50);
+        writeBatched(1, 50);
+
+        long legacy = measure("legacy, 1 order x " + LARGE_ORDER_LINES + " lines", () -> writeLegacy(1, LARGE_ORDER_LINES));
+        long batched = measure("batched, 1 order x " + LARGE_ORDER_LINES + " lines", () -> writeBatched(1, LARGE_ORDER_LINES));
+
+        // merge: a SELECT and an INSERT per row; batching: one statement per 50 rows
+        assertThat(batched).isLessThan(legacy / 10);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void bulkLoadIsWrittenInBatches() {
+        writeLegacy(10, BULK_LINES_PER_ORDER);
+        writeBatched(10, BULK_LINES_PER_ORDER);
+
+        String scenario = BULK_ORDERS + " orders x " + BULK_LINES_PER_ORDER + " lines";
+        long legacy = measure("legacy, " + scenario, () -> writeLegacy(BULK_ORDERS, BULK_LINES_PER_ORDER));
+        long batched = measure("batched, " + scenario, () -> writeBatched(BULK_ORDERS, BULK_LINES_PER_ORDER));
+
+        assertThat(batched).isLessThan(legacy / 10);
+    }
+
+    // Returns the number of prepared statements
+    private long measure(String label, Runnable write) {
+        statistics.clear();
+        long start = System.nanoTime();
+        write.run();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long statements = statistics.getPrepareStatementCount();
+        log.info("{}: {} ms, {} statements", label, millis, statements);
+        return statements;
+    }
+
+    private void writeLegacy(int orders, int linesPerOrder) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(1);
+            for (int i = 0; i < orders; i++) {
+                Command command = entityManager.merge(newCommand(UUID.randomUUID().toString()));
+                for (int l = 0; l < linesPerOrder; l++) {
+                    entityManager.merge(newLine(UUID.randomUUID().toString(), command, l));
+                }
+            }
+        });
+    }
+
+    private void writeBatched(int orders, int linesPerOrder) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < orders; i++) {
+                Command command = commandRepository.save(newCommand(UuidV7.generate()));
+                List<CommandProduct> lines = new ArrayList<>(linesPerOrder);
+                for (int l = 0; l < linesPerOrder; l++) {
+                    lines.add(newLine(UuidV7.generate(), command, l));
+                }
+                commandProductRepository.saveAll(lines);
+            }
+        });
+    }
+
+    private static Command newCommand(String id) {
+        Command command = new Command();
+        command.setId(id);
+        command.setDate(LocalDateTime.now());
+        command.setStatus(Command.CONFIRMED);
+        command.setAmount(10.0);
+        return command;
+    }
+
+    private static CommandProduct newLine(String id, Command command, int index) {
+        CommandProduct line = new CommandProduct();
+        line.setId(id);
+        line.setCommand(command);
+        line.setProductId("p" + index);
+        line.setQuantity(1);
+        line.setUnitPrice(10.0);
+        line.setLineTotal(10.0);
+        return line;
+    }
+}
@@ -0,0 +1,284 @@
+package org.example.commandservice.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.commandservice.dto.ClientTotalsDTO;
+import org.example.commandservice.dto.DailyRevenueDTO;
+import org.example.commandservice.dto.ProductSalesDTO;
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.entity.CommandProduct;
+import org.example.commandservice.feign.ProductRestClient;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Checks that the order summaries follow confirmations, changes and deletions, stay exact
+ * under concurrent orders and match a scan of the order tables once rebuilt. The benchmark compares
+ * report queries on them with such scans over a year of synthetic history (-Dbenchmark.orders-per-day).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "analytics.shards=1"
+})
+@Import(OrderAnalytics.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderAnalyticsTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderAnalyticsTest.class);
+
+    // Required by the startup data runner of CommandServiceApplication
+    @MockitoBean
+    private CommandService commandService;
+
+    @MockitoBean
+    private ProductRestClient productRestClient;
+
+    @Autowired
+    private OrderAnalytics orderAnalytics;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void summariesFollowConfirmedChangedAndDeletedOrders() {
+        LocalDate day = LocalDate.of(2026, 3, 5);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Command command = tx.execute(status -> {
+            Command saved = saveOrder(day.atTime(10, 0), "analytics-client", List.of(line("an-p1", 2, 10.0), line("an-p2", 1, 5.0)));
+            orderAnalytics.recordConfirmed(saved, saved.getProducts());
+            return saved;
+        });
+        assertThat(orderAnalytics.getDailyRevenue(day, day))
+                .containsExactly(new DailyRevenueDTO(day, 1L, 25.0));
+        assertThat(orderAnalytics.getTopProducts(day, day, false, 10))
+                .containsExactly(new ProductSalesDTO("an-p1", "an-p1", 2L, 20.0), new ProductSalesDTO("an-p2", "an-p2", 1L, 5.0));
+        assertThat(orderAnalytics.getClientTotals("analytics-client"))
+                .contains(new ClientTotalsDTO("analytics-client", 1L, 25.0));
+
+        // Quantity of an-p2 changed from 1 to 10: it becomes the best seller by quantity and by revenue
+        tx.executeWithoutResult(status -> {
+            orderAnalytics.recordRemoved(command, command.getProducts());
+            List<CommandProduct> lines = List.of(line("an-p1", 2, 10.0), line("an-p2", 10, 5.0));
+            command.setAmount(70.0);
+            orderAnalytics.recordConfirmed(command, lines);
+        });
+        assertThat(orderAnalytics.getDailyRevenue(day, day))
+                .containsExactly(new DailyRevenueDTO(day, 1L, 70.0));
+        assertThat(orderAnalytics.getTopProducts(day, day, true, 1))
+                .containsExactly(new ProductSalesDTO("an-p2", "an-p2", 10L, 50.0));
+
+        tx.executeWithoutResult(status -> orderAnalytics.recordRemoved(command, List.of(line("an-p1", 2, 10.0), line("an-p2", 10, 5.0))));
+        assertThat(orderAnalytics.getDailyRevenue(day, day))
+                .containsExactly(new DailyRevenueDTO(day, 0L, 0.0));
+        assertThat(orderAnalytics.getClientTotals("analytics-client"))
+                .contains(new ClientTotalsDTO("analytics-client", 0L, 0.0));
+    }
+
+    @Test
+    void concurrentOrdersAreAllCounted() throws Exception {
+        int threads = 8;
+        int ordersPerThread = 50;
+        LocalDate day = LocalDate.of(2026, 4, 1);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // H2 runs the upserts as MERGE, which unlike ON CONFLICT on PostgreSQL fails on a concurrent insert
+        // of the same key: the summary rows are created before the orders race
+        for (int c = 0; c < 2; c++) {
+            String clientId = "concurrent-client-" + c;
+            tx.executeWithoutResult(status -> {
+                Command saved = saveOrder(day.atTime(12, 0), clientId, List.of(line("flash-product", 1, 3.0)));
+                orderAnalytics.recordConfirmed(saved, saved.getProducts());
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String clientId = "concurrent-client-" + (t % 2);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        tx.executeWithoutResult(status -> {
+                            Command saved = saveOrder(day.atTime(12, 0), clientId, List.of(line("flash-product", 1, 3.0)));
+                            orderAnalytics.recordConfirmed(saved, saved.getProducts());
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int orders = threads * ordersPerThread + 2;
+        DailyRevenueDTO revenue = orderAnalytics.getDailyRevenue(day, day).get(0);
+        assertThat(revenue.getOrders()).isEqualTo(orders);
+        assertThat(revenue.getRevenue()).isCloseTo(orders * 3.0, within(1e-6));
+        assertThat(orderAnalytics.getTopProducts(day, day, true, 1).get(0).getQuantity()).isEqualTo(orders);
+        assertThat(orderAnalytics.getClientTotals("concurrent-client-0").orElseThrow().getOrders()).isEqualTo(orders / 2);
+    }
+
+    @Test
+    void rebuiltSummariesMatchAScanOfTheOrders() {
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        LocalDate last = LocalDate.of(2024, 3, 31);
+        insertHistory(first, last, 20);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> orderAnalytics.rebuild());
+
+        LocalDate from = LocalDate.of(2024, 2, 1);
+        assertThat(orderAnalytics.getDailyRevenue(from, last))
+                .containsExactlyElementsOf(tx.execute(status -> scanDailyRevenue(from, last)));
+        assertThat(orderAnalytics.getTopProducts(from, last, false, 5))
+                .containsExactlyElementsOf(tx.execute(status -> scanTopProducts(from, last, 5)));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void reportsReadSummariesInsteadOfScanningOrders() {
+        int ordersPerDay = Integer.getInteger("benchmark.orders-per-day", 300);
+        LocalDate first = LocalDate.of(2025, 1, 1);
+        LocalDate last = LocalDate.of(2025, 12, 31);
+        insertHistory(first, last, ordersPerDay);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long start = System.nanoTime();
+        tx.executeWithoutResult(status -> orderAnalytics.rebuild());
+        log.info("Rebuilt summaries from {} orders in {} ms",
+                ordersPerDay * last.getDayOfYear(), (System.nanoTime() - start) / 1_000_000);
+
+        // Warm up, then time six months of daily revenue and the top products of the same months
+        LocalDate from = LocalDate.of(2025, 7, 1);
+        for (int i = 0; i < 5; i++) {
+            orderAnalytics.getDailyRevenue(from, last);
+            orderAnalytics.getTopProducts(from, last, false, 5);
+            tx.execute(status -> scanDailyRevenue(from, last));
+            tx.execute(status -> scanTopProducts(from, last, 5));
+        }
+        long summaryDaily = time(() -> orderAnalytics.getDailyRevenue(from, last));
+        long scanDaily = time(() -> tx.execute(status -> scanDailyRevenue(from, last)));
+        long summaryTop = time(() -> orderAnalytics.getTopProducts(from, last, false, 5));
+        long scanTop = time(() -> tx.execute(status -> scanTopProducts(from, last, 5)));
+        log.info("Daily revenue, 6 months: summaries {} us, scan {} us", summaryDaily / 1000, scanDaily / 1000);
+        log.info("Top products, 6 months: summaries {} us, scan {} us", summaryTop / 1000, scanTop / 1000);
+    }
+
+    private Command saveOrder(LocalDateTime date, String clientId, List<CommandProduct> lines) {
+        Command command = new Command();
+        command.setId(UuidV7.generate());
+        command.setDate(date);
+        command.setStatus(Command.CONFIRMED);
+        command.setClientId(clientId);
+        command.setAmount(lines.stream().mapToDouble(CommandProduct::getLineTotal).sum());
+        entityManager.persist(command);
+        for (CommandProduct line : lines) {
+            line.setCommand(command);
+            entityManager.persist(line);
+        }
+        command.setProducts(lines);
+        return command;
+    }
+
+    private static CommandProduct line(String productId, int quantity, double unitPrice) {
+        CommandProduct line = new CommandProduct();
+        line.setId(UuidV7.generate());
+        line.setProductId(productId);
+        line.setProductName(productId);
+        line.setQuantity(quantity);
+        line.setUnitPrice(unitPrice);
+        line.setLineTotal(unitPrice * quantity);
+        return line;
+    }
+
+    // 3 lines per order over 200 products; every order is for "history-client-n"
+    private void insertHistory(LocalDate first, LocalDate last, int ordersPerDay) {
+        List<Object[]> commands = new ArrayList<>();
+        List<Object[]> lines = new ArrayList<>();
+        int n = 0;
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            for (int i = 0; i < ordersPerDay; i++, n++) {
+                String id = "h" + n;
+                double amount = 0;
+                for (int l = 0; l < 3; l++) {
+                    int product = (n * 7 + l * 31) % 200;
+                    int quantity = 1 + (n + l) % 4;
+                    double price = 5 + product;
+                    amount += price * quantity;
+                    lines.add(new Object[]{id + "-" + l, id, "hp" + product, "Product " + product, quantity, price, price * quantity});
+                }
+                commands.add(new Object[]{id, Timestamp.valueOf(day.atTime(9, 0).plusSeconds(i)), Command.CONFIRMED, amount, "history-client-" + n % 1000});
+                if (commands.size() == 10_000) {
+                    flushHistory(commands, lines);
+                }
+            }
+        }
+        flushHistory(commands, lines);
+    }
+
+    private void flushHistory(List<Object[]> commands, List<Object[]> lines) {
+        jdbcTemplate.batchUpdate("insert into command (id, date, status, amount, client_id) values (?, ?, ?, ?, ?)", commands);
+        jdbcTemplate.batchUpdate("insert into command_product (id, command_id, product_id, product_name, quantity, unit_price, line_total) values (?, ?, ?, ?, ?, ?, ?)", lines);
+        commands.clear();
+        lines.clear();
+    }
+
+    private List<DailyRevenueDTO> scanDailyRevenue(LocalDate from, LocalDate to) {
+        return entityManager.createQuery(
+                        "select new org.example.commandservice.dto.DailyRevenueDTO(cast(c.date as LocalDate), count(c), sum(c.amount)) " +
+                                "from Command c where c.status = 'CONFIRMED' and c.date >= :from and c.date < :to " +
+                                "group by cast(c.date as LocalDate) order by cast(c.date as LocalDate)", DailyRevenueDTO.class)
+                .setParameter("from", from.atStartOfDay())
+                .setParameter("to", to.plusDays(1).atStartOfDay())
+                .getResultList();
+    }
+
+    private List<ProductSalesDTO> scanTopProducts(LocalDate from, LocalDate to, int limit) {
+        return entityManager.createQuery(
+                        "select new org.example.commandservice.dto.ProductSalesDTO(cp.productId, max(cp.productName), sum(cp.quantity), sum(cp.lineTotal)) " +
+                                "from CommandProduct cp join cp.command c where c.status = 'CONFIRMED' and c.date >= :from and c.date < :to " +
+                                "group by cp.productId order by sum(cp.lineTotal) desc", ProductSalesDTO.class)
+                .setParameter("from", from.withDayOfMonth(1).atStartOfDay())
+                .setParameter("to", to.withDayOfMonth(1).plusMonths(1).atStartOfDay())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static long time(Runnable query) {
+        long start = System.nanoTime();
+        query.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,253 @@
+package org.example.commandservice.service;
+
+import feign.FeignException;
+import feign.Request;
+import org.example.commandservice.dto.CommandProductDTO;
+import org.example.commandservice.dto.CommandRequestDTO;
+import org.example.commandservice.dto.CommandResponseDTO;
+import org.example.commandservice.dto.StockReservationDTO;
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.entity.OutboxEvent;
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.feign.ProductRestClient;
+import org.example.commandservice.repository.CommandRepository;
+import org.example.commandservice.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pipeline;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "eureka.client.enabled=false",
+        "security.internal-identity.enabled=true",
+        "security.internal-identity.secret=0123456789abcdef0123456789abcdef",
+        "command.pipeline.async=true",
+        // dispatched by hand so each test controls what ends up in a batch
+        "command.pipeline.poll-interval-ms=3600000",
+        "command.pipeline.backoff=1m"
+})
+class OrderPipelineTest {
+
+    @MockitoBean
+    private ProductRestClient productRestClient;
+
+    @Autowired
+    private CommandService commandService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private CommandRepository commandRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private final Map<String, Product> catalog = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        catalog.clear();
+        catalog.put("p1", new Product("p1", "phone", "", 10.0, 100));
+        catalog.put("p2", new Product("p2", "case", "", 2.0, 100));
+        catalog.put("p-short", new Product("p-short", "charger", "", 5.0, 100));
+        when(productRestClient.findProductsByIds(any())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return ids.stream().map(catalog::get).toList();
+        });
+        when(productRestClient.reserveProducts(any())).thenAnswer(invocation -> {
+            StockReservationDTO reservation = invocation.getArgument(0);
+            // product-service has less "p-short" left than the catalog read said
+            if (reservation.getItems().stream().anyMatch(item -> item.getProductId().equals("p-short"))) {
+                throw conflict();
+            }
+            return List.of();
+        });
+        when(productRestClient.releaseProducts(any())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void ordersAreRecordedForTheAuthenticatedClientAndListedNewestFirst() {
+        authenticate("pipeline-client");
+        CommandResponseDTO older = commandService.createCommand(order("p1", 1));
+        CommandResponseDTO newer = commandService.createCommand(order("p2", 1));
+
+        assertThat(commandRepository.findById(older.getId()).orElseThrow().getClientId()).isEqualTo("pipeline-client");
+        assertThat(commandService.getMyCommandsPage(0, 1, false).getContent())
+                .extracting(CommandResponseDTO::getId).containsExactly(newer.getId());
+        assertThat(commandService.getMyCommandsPage(1, 1, false).getContent())
+                .extracting(CommandResponseDTO::getId).containsExactly(older.getId());
+
+        authenticate("another-client");
+        assertThat(commandService.getMyCommandsPage(0, 20, false).getContent()).isEmpty();
+    }
+
+    @Test
+    void pendingOrdersAreConfirmedWithOneBatchedReservation() {
+        CommandResponseDTO first = commandService.createCommand(order("p1", 1));
+        CommandResponseDTO second = commandService.createCommand(order("p2", 3));
+        CommandResponseDTO third = commandService.createCommand(order("p1", 2));
+        assertThat(first.getStatus()).isEqualTo(Command.PENDING);
+
+        outboxDispatcher.dispatch();
+
+        awaitStatus(first.getId(), Command.CONFIRMED);
+        awaitStatus(second.getId(), Command.CONFIRMED);
+        awaitStatus(third.getId(), Command.CONFIRMED);
+        verify(productRestClient, times(1)).reserveProducts(any());
+        assertThat(outboxEventRepository.findByCommandId(first.getId())).allMatch(event -> event.getProcessedAt() != null);
+    }
+
+    @Test
+    void onlyTheShortOrderOfARejectedBatchIsRejected() {
+        CommandResponseDTO ok = commandService.createCommand(order("p1", 1));
+        CommandResponseDTO shortOrder = commandService.createCommand(order("p-short", 1));
+
+        outboxDispatcher.dispatch();
+
+        awaitStatus(ok.getId(), Command.CONFIRMED);
+        awaitStatus(shortOrder.getId(), Command.REJECTED);
+        // the batch, then each order on its own
+        verify(productRestClient, times(3)).reserveProducts(any());
+    }
+
+    @Test
+    void reservationForAnOrderNoLongerPendingIsReleased() {
+        CommandResponseDTO order = commandService.createCommand(order("p1", 4));
+        Command command = commandRepository.findById(order.getId()).orElseThrow();
+        command.setStatus(Command.REJECTED);
+        commandRepository.save(command);
+
+        outboxDispatcher.dispatch();
+        await(() -> outboxEventRepository.findByCommandId(order.getId()).stream()
+                .anyMatch(event -> event.getType().equals(OutboxEvent.STOCK_RELEASE_REQUESTED)));
+        outboxDispatcher.dispatch();
+
+        await(() -> outboxEventRepository.findByCommandId(order.getId()).stream().allMatch(event -> event.getProcessedAt() != null));
+        verify(productRestClient).releaseProducts(argThat(reservation -> reservation.getItems().get(0).getQuantity() == 4));
+        assertThat(commandRepository.findById(order.getId()).orElseThrow().getStatus()).isEqualTo(Command.REJECTED);
+    }
+
+    @Test
+    void redeliveredReservationOfAConfirmedOrderReleasesNothing() {
+        CommandResponseDTO order = commandService.createCommand(order("p2", 2));
+        outboxDispatcher.dispatch();
+        awaitStatus(order.getId(), Command.CONFIRMED);
+
+        // published again, as after a crash between the reservation call and the commit that completed it
+        OutboxEvent event = outboxEventRepository.findByCommandId(order.getId()).get(0);
+        event.setProcessedAt(null);
+        outboxEventRepository.save(event);
+        outboxDispatcher.dispatch();
+
+        await(() -> outboxEventRepository.findByCommandId(order.getId()).stream().allMatch(e -> e.getProcessedAt() != null));
+        verify(productRestClient, times(2)).reserveProducts(argThat(reservation ->
+                reservation.getItems().stream().allMatch(item -> order.getId().equals(item.getCommandId()))));
+        assertThat(outboxEventRepository.findByCommandId(order.getId())).hasSize(1);
+        verify(productRestClient, never()).releaseProducts(any());
+    }
+
+    @Test
+    void outageLeavesTheOrderPendingForALaterAttempt() {
+        doThrow(new RuntimeException("product-service unavailable")).when(productRestClient).reserveProducts(any());
+        CommandResponseDTO order = commandService.createCommand(order("p2", 1));
+
+        outboxDispatcher.dispatch();
+
+        await(() -> outboxEventRepository.findByCommandId(order.getId()).get(0).getAttempts() == 1);
+        OutboxEvent event = outboxEventRepository.findByCommandId(order.getId()).get(0);
+        assertThat(event.getProcessedAt()).isNull();
+        assertThat(event.getAvailableAt()).isAfter(event.getCreatedAt());
+        assertThat(commandRepository.findById(order.getId()).orElseThrow().getStatus()).isEqualTo(Command.PENDING);
+    }
+
+    @Test
+    void stockReservedByTheLastFailedAttemptIsReleased() {
+        // product-service commits the reservation, the answer is lost
+        List<StockReservationDTO> reserved = new ArrayList<>();
+        doAnswer(invocation -> {
+            reserved.add(invocation.getArgument(0));
+            throw new RuntimeException("read timed out");
+        }).when(productRestClient).reserveProducts(any());
+        CommandResponseDTO order = commandService.createCommand(order("p2", 3));
+        OutboxEvent event = outboxEventRepository.findByCommandId(order.getId()).get(0);
+        event.setAttempts(9);
+        outboxEventRepository.save(event);
+
+        outboxDispatcher.dispatch();
+        awaitStatus(order.getId(), Command.REJECTED);
+        await(() -> outboxEventRepository.findByCommandId(order.getId()).stream()
+                .anyMatch(e -> e.getType().equals(OutboxEvent.STOCK_RELEASE_REQUESTED)));
+        outboxDispatcher.dispatch();
+
+        await(() -> outboxEventRepository.findByCommandId(order.getId()).stream().allMatch(e -> e.getProcessedAt() != null));
+        assertThat(reserved).hasSize(1);
+        verify(productRestClient).releaseProducts(argThat(reservation -> reservation.getItems().equals(reserved.get(0).getItems())));
+    }
+
+    private void awaitStatus(String commandId, String status) {
+        await(() -> status.equals(commandRepository.findById(commandId).orElseThrow().getStatus()));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within 5s");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static void authenticate(String username) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("sub-" + username)
+                .claim("preferred_username", username)
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt, List.of(), username));
+    }
+
+    private static CommandRequestDTO order(String productId, int quantity) {
+        return CommandRequestDTO.builder()
+                .products(List.of(CommandProductDTO.builder().productId(productId).quantity(quantity).build()))
+                .build();
+    }
+
+    private static FeignException conflict() {
+        Request request = Request.create(Request.HttpMethod.POST, "/products/reservations", Map.of(),
+                new byte[0], StandardCharsets.UTF_8, null);
+        return new FeignException.Conflict("insufficient quantity", request, null, Map.of());
+    }
+}
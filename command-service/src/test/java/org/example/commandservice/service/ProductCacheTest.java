@@ -0,0 +1,66 @@
+package org.example.commandservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.feign.ProductRestClient;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class ProductCacheTest {
+
+    private final ProductRestClient productRestClient = mock(ProductRestClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProductCache productCache = new ProductCache(productRestClient, mock(ProductHydrator.class), meterRegistry, true, 100, Duration.ofMinutes(5), Duration.ofHours(1));
+
+    @Test
+    void missesAreLoadedInOneBatchAndThenServedFromCache() {
+        when(productRestClient.findProductsByIds(any())).thenReturn(List.of(
+                new Product("p1", "phone", "", 10.0, 3),
+                new Product("p2", "disk", "", 20.0, 4)));
+
+        Map<String, Product> first = productCache.getAll(Set.of("p1", "p2"));
+        Map<String, Product> second = productCache.getAll(Set.of("p1", "p2"));
+
+        assertThat(first).containsOnlyKeys("p1", "p2");
+        assertThat(second).containsOnlyKeys("p1", "p2");
+        verify(productRestClient, times(1)).findProductsByIds(any());
+        verifyNoMoreInteractions(productRestClient);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void putAllReplacesCachedStock() {
+        when(productRestClient.findProductById("p1")).thenReturn(new Product("p1", "phone", "", 10.0, 3));
+        productCache.get("p1");
+
+        productCache.putAll(List.of(new Product("p1", "phone", "", 10.0, 1)));
+
+        assertThat(productCache.get("p1").getQuantity()).isEqualTo(1);
+        verify(productRestClient, times(1)).findProductById("p1");
+    }
+
+    @Test
+    void lastKnownProductsAreServedWhileProductServiceFails() {
+        when(productRestClient.findProductsByIds(any()))
+                .thenReturn(List.of(new Product("p1", "phone", "", 10.0, 3)))
+                .thenThrow(new RuntimeException("product-service unavailable"));
+        productCache.getAll(Set.of("p1"));
+        productCache.invalidate("p1");
+
+        assertThat(productCache.getAll(Set.of("p1")).get("p1").getName()).isEqualTo("phone");
+        assertThatThrownBy(() -> productCache.getAll(Set.of("p1", "p2"))).hasMessage("product-service unavailable");
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.commandservice.service;
+
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.feign.ProductRestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The benchmark compares the sequential per-line lookup with the parallel fan-out against a product-service stub with injected latency
+class ProductHydratorBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductHydratorBenchmarkTest.class);
+
+    private static final long LATENCY_MS = 20;
+    private static final int PRODUCTS = 50;
+
+    private final ProductRestClient productRestClient = mock(ProductRestClient.class);
+    private ProductHydrator productHydrator;
+
+    @AfterEach
+    void shutdown() {
+        if (productHydrator != null) {
+            productHydrator.shutdown();
+        }
+    }
+
+    @Test
+    void lookupsRunConcurrently() {
+        int parallelism = 4;
+        CountDownLatch inFlight = new CountDownLatch(parallelism);
+        when(productRestClient.findProductById(anyString())).thenAnswer(invocation -> {
+            inFlight.countDown();
+            // Answers only once all lookups are running at the same time: one by one, the first would time out
+            assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+            String id = invocation.getArgument(0);
+            return new Product(id, "product " + id, "", 10.0, 5);
+        });
+        productHydrator = new ProductHydrator(productRestClient, parallelism, Duration.ofSeconds(10), false);
+
+        assertThat(productHydrator.fetchAll(List.of("p1", "p2", "p3", "p4", "p1")))
+                .containsOnlyKeys("p1", "p2", "p3", "p4");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void parallelFanOutBeatsSequentialLookups() {
+        stubLatency(LATENCY_MS);
+        productHydrator = new ProductHydrator(productRestClient, 16, Duration.ofSeconds(5), false);
+        List<String> ids = IntStream.range(0, PRODUCTS).mapToObj(i -> "p" + i).toList();
+
+        long start = System.nanoTime();
+        Map<String, Product> sequential = new HashMap<>();
+        for (String id : ids) {
+            sequential.put(id, productRestClient.findProductById(id));
+        }
+        long sequentialMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        Map<String, Product> parallel = productHydrator.fetchAll(ids);
+        long parallelMs = (System.nanoTime() - start) / 1_000_000;
+
+        log.info("{} products at {} ms each: sequential {} ms, parallel {} ms", PRODUCTS, LATENCY_MS, sequentialMs, parallelMs);
+        assertThat(parallel).containsOnlyKeys(sequential.keySet());
+        assertThat(parallelMs).isLessThan(sequentialMs / 3);
+    }
+
+    @Test
+    void deadlineCancelsSlowLookups() {
+        stubLatency(1_000);
+        productHydrator = new ProductHydrator(productRestClient, 4, Duration.ofMillis(100), false);
+
+        assertThatThrownBy(() -> productHydrator.fetchAll(List.of("p1", "p2")))
+                .hasMessageContaining("Timed out");
+    }
+
+    private void stubLatency(long latencyMs) {
+        when(productRestClient.findProductById(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(latencyMs);
+            String id = invocation.getArgument(0);
+            return new Product(id, "product " + id, "", 10.0, 5);
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.commandservice.service;
+
+import feign.FeignException;
+import feign.Request;
+import org.example.commandservice.dto.CommandProductDTO;
+import org.example.commandservice.dto.CommandRequestDTO;
+import org.example.commandservice.dto.CommandResponseDTO;
+import org.example.commandservice.entity.Command;
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.feign.ProductRestClient;
+import org.example.commandservice.repository.CommandRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sync-orders;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "eureka.client.enabled=false",
+        "command.pipeline.async=false"
+})
+class SynchronousOrderTest {
+
+    @MockitoBean
+    private ProductRestClient productRestClient;
+
+    @Autowired
+    private CommandService commandService;
+
+    @Autowired
+    private CommandRepository commandRepository;
+
+    @BeforeEach
+    void setUp() {
+        reset(productRestClient);
+        when(productRestClient.findProductsByIds(any())).thenReturn(List.of(new Product("p1", "phone", "", 10.0, 100)));
+        when(productRestClient.releaseProducts(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void reservedOrderIsConfirmed() {
+        when(productRestClient.reserveProducts(any())).thenReturn(List.of(new Product("p1", "phone", "", 10.0, 98)));
+
+        CommandResponseDTO order = commandService.createCommand(order(2));
+
+        assertThat(order.getStatus()).isEqualTo(Command.CONFIRMED);
+        assertThat(commandRepository.findById(order.getId()).orElseThrow().getStatus()).isEqualTo(Command.CONFIRMED);
+        verify(productRestClient).reserveProducts(argThat(reservation -> order.getId().equals(reservation.getItems().get(0).getCommandId())));
+    }
+
+    @Test
+    void refusedReservationRemovesTheOrder() {
+        long before = commandRepository.count();
+        when(productRestClient.reserveProducts(any())).thenThrow(conflict());
+
+        assertThatThrownBy(() -> commandService.createCommand(order(2))).isInstanceOf(FeignException.Conflict.class);
+
+        assertThat(commandRepository.count()).isEqualTo(before);
+        verify(productRestClient, never()).releaseProducts(any());
+    }
+
+    @Test
+    void reservationWithAnUnknownOutcomeIsReleased() {
+        long before = commandRepository.count();
+        when(productRestClient.reserveProducts(any())).thenThrow(new RuntimeException("read timed out"));
+
+        assertThatThrownBy(() -> commandService.createCommand(order(2))).hasMessage("read timed out");
+
+        assertThat(commandRepository.count()).isEqualTo(before);
+        verify(productRestClient).releaseProducts(argThat(reservation ->
+                reservation.getItems().get(0).getCommandId() != null && reservation.getItems().get(0).getQuantity() == 2));
+    }
+
+    private static CommandRequestDTO order(int quantity) {
+        return CommandRequestDTO.builder()
+                .products(List.of(CommandProductDTO.builder().productId("p1").quantity(quantity).build()))
+                .build();
+    }
+
+    private static FeignException conflict() {
+        Request request = Request.create(Request.HttpMethod.POST, "/products/reservations", Map.of(),
+                new byte[0], StandardCharsets.UTF_8, null);
+        return new FeignException.Conflict("insufficient quantity", request, null, Map.of());
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.commandservice.service;
+
+import org.example.commandservice.entity.Product;
+import org.example.commandservice.feign.ProductRestClient;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the caller's SecurityContext reaches the Feign call when lookups run on virtual threads.
+ * The benchmark models command-service request handling under 1,200 concurrent clients: each request
+ * fans out to a product-service stub with 50 ms latency. It compares Tomcat's default 200 platform
+ * threads with one virtual thread per request. Run with a Java 21 JDK:
+ * mvn test -Pjava21,benchmarks -Dtest=VirtualThreadLoadTest
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadLoadTest.class);
+
+    private static final int CLIENTS = 1200;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long LATENCY_MS = 50;
+
+    @Test
+    void lookupsOnVirtualThreadsRunWithTheCallersSecurityContext() {
+        ProductRestClient productRestClient = mock(ProductRestClient.class);
+        when(productRestClient.findProductById(anyString())).thenAnswer(invocation ->
+                new Product(invocation.getArgument(0), SecurityContextHolder.getContext().getAuthentication().getName(), "", 10.0, 5));
+        ProductHydrator productHydrator = new ProductHydrator(productRestClient, 16, Duration.ofSeconds(5), true);
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("client-1", "token"));
+        try {
+            assertThat(productHydrator.fetchAll(List.of("p1", "p2")).values())
+                    .extracting(Product::getName)
+                    .containsExactly("client-1", "client-1");
+        } finally {
+            SecurityContextHolder.clearContext();
+            productHydrator.shutdown();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void virtualThreadsSustainMoreConcurrentClients() throws Exception {
+        ExecutorService platform = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        Result platformResult = run("platform", platform, false);
+        platform.shutdownNow();
+
+        SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("request-");
+        virtualExecutor.setVirtualThreads(true);
+        Result virtualResult = run("virtual", new ExecutorServiceAdapter(virtualExecutor), true);
+
+        assertThat(virtualResult.throughput).isGreaterThan(platformResult.throughput * 2);
+        assertThat(virtualResult.p99Millis).isLessThan(platformResult.p99Millis);
+    }
+
+    private Result run(String mode, ExecutorService requestExecutor, boolean virtualThreads) throws Exception {
+        ProductRestClient productRestClient = mock(ProductRestClient.class);
+        when(productRestClient.findProductById(anyString())).thenAnswer(invocation -> {
+            // Same check the Feign bearer token interceptor depends on
+            assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
+            Thread.sleep(LATENCY_MS);
+            return new Product(invocation.getArgument(0), "product", "", 10.0, 5);
+        });
+        ProductHydrator productHydrator = new ProductHydrator(productRestClient, 16, Duration.ofSeconds(30), virtualThreads);
+
+        long start = System.nanoTime();
+        List<Future<Long>> requests = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            String user = "client-" + i;
+            // Latency includes the time a request waits for a free thread
+            long requestStart = System.nanoTime();
+            requests.add(requestExecutor.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, "token"));
+                try {
+                    assertThat(productHydrator.fetchAll(List.of("p1", "p2"))).hasSize(2);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+                return System.nanoTime() - requestStart;
+            }));
+        }
+        long[] latencies = new long[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            latencies[i] = requests.get(i).get(60, TimeUnit.SECONDS);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        productHydrator.shutdown();
+
+        Arrays.sort(latencies);
+        Result result = new Result(CLIENTS / elapsedSeconds, latencies[(int) (CLIENTS * 0.99) - 1] / 1_000_000);
+        log.info("{} threads: {} req/s, p99 {} ms", mode, Math.round(result.throughput), result.p99Millis);
+        return result;
+    }
+
+    private record Result(double throughput, long p99Millis) {
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.common.idempotency;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+// Registers IdempotencyService in the services depending on this module; the package is added to the
+// application's own, so IdempotencyRecord and its repository are picked up with the service's entities.
+@AutoConfiguration(before = HibernateJpaAutoConfiguration.class)
+@AutoConfigurationPackage
+@Import(IdempotencyService.class)
+public class IdempotencyAutoConfiguration {
+}
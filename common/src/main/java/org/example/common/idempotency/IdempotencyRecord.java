@@ -0,0 +1,32 @@
+package org.example.common.idempotency;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+// Outcome of a request sent with an Idempotency-Key; a row without completedAt is still being executed, or was
+// left behind by an instance that stopped before completing it once claimedUntil has passed
+@Entity
+@Table(indexes = @Index(name = "idx_idempotency_record_expires_at", columnList = "expires_at"))
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor
+public class IdempotencyRecord {
+    // SHA-256 of caller, operation and key
+    @Id
+    @Column(length = 64)
+    private String id;
+    // SHA-256 of the request, a key reused for another request is refused
+    @Column(length = 64)
+    private String requestHash;
+    private int statusCode;
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String responseBody;
+    private Instant completedAt;
+    private Instant claimedUntil;
+    private Instant expiresAt;
+}
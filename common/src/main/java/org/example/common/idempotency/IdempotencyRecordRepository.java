@@ -0,0 +1,26 @@
+package org.example.common.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Takes over a claim that was not completed in time, conditional so only one of concurrent retries gets it
+    @Modifying
+    @Query("update IdempotencyRecord r set r.claimedUntil = :claimedUntil, r.expiresAt = :expiresAt " +
+            "where r.id = :id and r.requestHash = :requestHash and r.completedAt is null " +
+            "and (r.claimedUntil is null or r.claimedUntil < :now)")
+    int takeOverExpiredClaim(@Param("id") String id,
+                             @Param("requestHash") String requestHash,
+                             @Param("now") Instant now,
+                             @Param("claimedUntil") Instant claimedUntil,
+                             @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,169 @@
+package org.example.common.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+// Executes a request sent with an Idempotency-Key at most once and replays the stored response to its retries.
+// The key is claimed by inserting its row before executing; recent outcomes are also kept in memory. A claim
+// that is not completed within claim-timeout (the instance died, or storing the response failed) can be taken
+// over by a retry instead of answering 409 until the row expires.
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate newTransaction;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final Duration ttl;
+    private final Duration claimTimeout;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              EntityManager entityManager,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.claim-timeout:2m}") Duration claimTimeout,
+                              @Value("${idempotency.cache.maximum-size:10000}") long maximumSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = ttl;
+        this.claimTimeout = claimTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public <T> ResponseEntity<T> execute(String idempotencyKey, String operation, Object request,
+                                         Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        String id = sha256(caller() + "|" + operation + "|" + idempotencyKey);
+        String requestHash = sha256(operation + "|" + writeJson(request));
+
+        IdempotencyRecord record = completed.getIfPresent(id);
+        if (record == null && !claim(id, requestHash)) {
+            record = idempotencyRecordRepository.findById(id).orElse(null);
+            if (record == null) {
+                // Released by a failed attempt meanwhile
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is in progress");
+            }
+        }
+        if (record != null) {
+            return replay(record, requestHash, responseType);
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            // Failed requests are not stored: the key is released so the client can retry
+            newTransaction.executeWithoutResult(tx -> idempotencyRecordRepository.deleteById(id));
+            throw e;
+        }
+        IdempotencyRecord result = newTransaction.execute(tx -> {
+            IdempotencyRecord claimed = idempotencyRecordRepository.findById(id).orElseThrow();
+            claimed.setStatusCode(response.getStatusCode().value());
+            claimed.setResponseBody(writeJson(response.getBody()));
+            claimed.setCompletedAt(Instant.now());
+            return claimed;
+        });
+        completed.put(id, result);
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:600000}")
+    @Transactional
+    public void purgeExpired() {
+        idempotencyRecordRepository.deleteExpired(Instant.now());
+    }
+
+    // Insert-only, so a concurrent duplicate fails on the primary key instead of overwriting the claim
+    private boolean claim(String id, String requestHash) {
+        Instant now = Instant.now();
+        try {
+            newTransaction.executeWithoutResult(tx -> {
+                entityManager.persist(new IdempotencyRecord(id, requestHash, 0, null, null, now.plus(claimTimeout), now.plus(ttl)));
+                entityManager.flush();
+            });
+            return true;
+        } catch (PersistenceException | DataIntegrityViolationException e) {
+            return takeOverExpiredClaim(id, requestHash, now);
+        }
+    }
+
+    private boolean takeOverExpiredClaim(String id, String requestHash, Instant now) {
+        Integer updated = newTransaction.execute(tx ->
+                idempotencyRecordRepository.takeOverExpiredClaim(id, requestHash, now, now.plus(claimTimeout), now.plus(ttl)));
+        return updated != null && updated == 1;
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, String requestHash, Class<T> responseType) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request");
+        }
+        if (record.getCompletedAt() == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is in progress");
+        }
+        completed.put(record.getId(), record);
+        try {
+            T body = record.getResponseBody() == null ? null : objectMapper.readValue(record.getResponseBody(), responseType);
+            return ResponseEntity.status(record.getStatusCode()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String writeJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Keys are scoped per caller, two users can't see each other's responses
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "" : authentication.getName();
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.common.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationManagerResolver;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+// Fast path for requests that went through gateway edge authentication: the X-Internal-Identity
+// header is an HS256 token checked with one HMAC instead of an RSA signature against Keycloak's keys.
+// Requests without it keep using the regular Keycloak bearer token.
+public class InternalIdentityResolver implements AuthenticationManagerResolver<HttpServletRequest> {
+
+    public static final String HEADER = "X-Internal-Identity";
+    public static final String ISSUER = "gateway-service";
+
+    private final AuthenticationManager keycloakAuthenticationManager;
+    private final AuthenticationManager internalAuthenticationManager;
+    private final DefaultBearerTokenResolver defaultBearerTokenResolver = new DefaultBearerTokenResolver();
+
+    public InternalIdentityResolver(JwtDecoder keycloakJwtDecoder, Converter<Jwt, ? extends AbstractAuthenticationToken> jwtAuthenticationConverter, boolean enabled, String secret) {
+        this.keycloakAuthenticationManager = authenticationManager(keycloakJwtDecoder, jwtAuthenticationConverter);
+        this.internalAuthenticationManager = enabled ? authenticationManager(internalJwtDecoder(secret), jwtAuthenticationConverter) : null;
+    }
+
+    @Override
+    public AuthenticationManager resolve(HttpServletRequest request) {
+        return isInternal(request) ? internalAuthenticationManager : keycloakAuthenticationManager;
+    }
+
+    public BearerTokenResolver bearerTokenResolver() {
+        return request -> isInternal(request) ? request.getHeader(HEADER) : defaultBearerTokenResolver.resolve(request);
+    }
+
+    public static boolean isInternal(Jwt jwt) {
+        return ISSUER.equals(jwt.getClaimAsString("iss"));
+    }
+
+    private boolean isInternal(HttpServletRequest request) {
+        return internalAuthenticationManager != null && request.getHeader(HEADER) != null;
+    }
+
+    private static AuthenticationManager authenticationManager(JwtDecoder jwtDecoder, Converter<Jwt, ? extends AbstractAuthenticationToken> jwtAuthenticationConverter) {
+        JwtAuthenticationProvider provider = new JwtAuthenticationProvider(jwtDecoder);
+        provider.setJwtAuthenticationConverter(jwtAuthenticationConverter);
+        return new ProviderManager(provider);
+    }
+
+    private static JwtDecoder internalJwtDecoder(String secret) {
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalStateException("security.internal-identity.secret must be at least 32 bytes when the internal identity is enabled");
+        }
+        NimbusJwtDecoder decoder = NimbusJwtDecoder
+                .withSecretKey(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"))
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(ISSUER));
+        return decoder;
+    }
+}
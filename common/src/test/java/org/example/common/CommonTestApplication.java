@@ -0,0 +1,8 @@
+package org.example.common;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+// Configuration the test slices of this module start from
+@SpringBootApplication
+class CommonTestApplication {
+}
@@ -0,0 +1,179 @@
+package org.example.common.idempotency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(IdempotencyService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    private static final String OPERATION = "PUT /products/p1/quantity";
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void clean() {
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    void retryIsReplayedWithoutExecutingAgain() {
+        ResponseEntity<QuantityChange> first = execute("key-1", -2);
+        ResponseEntity<QuantityChange> retry = execute("key-1", -2);
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retry.getBody().quantityChange()).isEqualTo(first.getBody().quantityChange());
+        assertThat(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void withoutKeyEveryRequestIsExecuted() {
+        execute(null, -1);
+        execute(null, -1);
+
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRefused() {
+        execute("key-2", -1);
+
+        assertThatThrownBy(() -> execute("key-2", -5))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    @Test
+    void failedRequestReleasesTheKey() {
+        assertThatThrownBy(() -> idempotencyService.execute("key-3", OPERATION, new QuantityChange(-1), QuantityChange.class,
+                () -> {
+                    throw new RuntimeException("insufficient quantity");
+                })).hasMessage("insufficient quantity");
+
+        execute("key-3", -1);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentDuplicatesExecuteOnce() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicInteger refused = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    execute("key-4", -1);
+                } catch (ResponseStatusException e) {
+                    // still in progress: the client retries later
+                    refused.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(executions.get()).isEqualTo(1);
+        execute("key-4", -1);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void claimLeftBehindIsTakenOverOnceItsLeaseHasPassed() {
+        // An instance stopped while executing key-6: its claim is never completed nor released
+        assertThatThrownBy(() -> idempotencyService.execute("key-6", OPERATION, new QuantityChange(-1), QuantityChange.class,
+                () -> {
+                    IdempotencyRecord claim = idempotencyRecordRepository.findAll().get(0);
+                    assertThat(claim.getClaimedUntil()).isAfter(Instant.now());
+                    throw new Error("instance stopped");
+                })).hasMessage("instance stopped");
+
+        assertThatThrownBy(() -> execute("key-6", -1))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(executions.get()).isZero();
+
+        IdempotencyRecord claim = idempotencyRecordRepository.findAll().get(0);
+        claim.setClaimedUntil(Instant.now().minusSeconds(1));
+        idempotencyRecordRepository.save(claim);
+
+        ResponseEntity<QuantityChange> retry = execute("key-6", -1);
+        assertThat(retry.getBody().quantityChange()).isEqualTo(-1);
+        assertThat(executions.get()).isEqualTo(1);
+        // a key reused for another request is still refused rather than taken over
+        assertThatThrownBy(() -> execute("key-6", -5))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(execute("key-6", -1).getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredRecordsArePurged() {
+        execute("key-5", -1);
+        IdempotencyRecord record = idempotencyRecordRepository.findAll().get(0);
+        record.setExpiresAt(Instant.now().minusSeconds(1));
+        idempotencyRecordRepository.save(record);
+
+        idempotencyService.purgeExpired();
+
+        assertThat(idempotencyRecordRepository.count()).isZero();
+    }
+
+    private ResponseEntity<QuantityChange> execute(String key, int quantityChange) {
+        QuantityChange request = new QuantityChange(quantityChange);
+        return idempotencyService.execute(key, OPERATION, request, QuantityChange.class, () -> {
+            executions.incrementAndGet();
+            sleep();
+            return ResponseEntity.ok(request);
+        });
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    record QuantityChange(int quantityChange) {
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.common.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternalIdentityResolverTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    // Realm roles as authorities, as the services' JwtAuthConverter maps them
+    private static final Converter<Jwt, AbstractAuthenticationToken> ROLES = jwt -> new JwtAuthenticationToken(jwt,
+            jwt.<Map<String, List<String>>>getClaim("realm_access").get("roles").stream().map(SimpleGrantedAuthority::new).toList(),
+            jwt.getClaimAsString("preferred_username"));
+
+    private final JwtDecoder keycloakDecoder = token -> {
+        throw new AssertionError("Keycloak decoder must not be used for internal identities");
+    };
+
+    @Test
+    void authenticatesGatewayIdentityWithHmac() throws Exception {
+        InternalIdentityResolver resolver = new InternalIdentityResolver(keycloakDecoder, ROLES, true, SECRET);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(InternalIdentityResolver.HEADER, identity(SECRET, "gateway-service"));
+
+        String token = resolver.bearerTokenResolver().resolve(request);
+        Authentication authentication = resolver.resolve(request).authenticate(new BearerTokenAuthenticationToken(token));
+
+        assertEquals("alice", authentication.getName());
+        assertTrue(authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList().contains("ADMIN"));
+    }
+
+    @Test
+    void rejectsIdentitySignedWithAnotherKeyOrIssuer() throws Exception {
+        InternalIdentityResolver resolver = new InternalIdentityResolver(keycloakDecoder, ROLES, true, SECRET);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(InternalIdentityResolver.HEADER, "present");
+
+        String forged = identity("ffffffffffffffffffffffffffffffff", "gateway-service");
+        assertThrows(AuthenticationException.class,
+                () -> resolver.resolve(request).authenticate(new BearerTokenAuthenticationToken(forged)));
+        String otherIssuer = identity(SECRET, "someone-else");
+        assertThrows(AuthenticationException.class,
+                () -> resolver.resolve(request).authenticate(new BearerTokenAuthenticationToken(otherIssuer)));
+    }
+
+    @Test
+    void ignoresIdentityHeaderWhenDisabled() throws Exception {
+        InternalIdentityResolver resolver = new InternalIdentityResolver(keycloakDecoder, ROLES, false, null);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(InternalIdentityResolver.HEADER, identity(SECRET, "gateway-service"));
+
+        assertNull(resolver.bearerTokenResolver().resolve(request));
+    }
+
+    private static String identity(String secret, String issuer) throws Exception {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject("alice-id")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(60)))
+                .claim("preferred_username", "alice")
+                .claim("realm_access", Map.of("roles", List.of("ADMIN", "USER")))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(secret));
+        return jwt.serialize();
+    }
+}
@@ -2,11 +2,24 @@ import React, { useState, useEffect, useCallback } from 'react';
 import axios from 'axios';
 import './ProductList.css';
 
+const PAGE_SIZE = 50;
+
+// Colonnes triées par le serveur (sur tout le catalogue), les autres seulement sur la page affichée
+const SERVER_SORTS = {
+    name: { asc: 'name', desc: 'name' },
+    price: { asc: 'price_asc', desc: 'price_desc' },
+};
+
 const ProductList = ({ keycloak }) => {
     const [products, setProducts] = useState([]);
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState(null);
     const [sortConfig, setSortConfig] = useState({ key: null, direction: 'asc' });
+    const [query, setQuery] = useState('');
+    const [minPrice, setMinPrice] = useState('');
+    const [maxPrice, setMaxPrice] = useState('');
+    const [total, setTotal] = useState(0);
+    const [priceFacets, setPriceFacets] = useState([]);
 
     const fetchProducts = useCallback(async () => {
         if (!keycloak || !keycloak.token) {
@@ -23,8 +36,16 @@ const ProductList = ({ keycloak }) => {
             await keycloak.updateToken(30);
             const token = keycloak.token;
 
+            // Recherche, filtre de prix et tri faits par le serveur (index de recherche du product-service)
+            const params = { size: PAGE_SIZE };
+            if (query.trim()) params.q = query.trim();
+            if (minPrice !== '') params.minPrice = minPrice;
+            if (maxPrice !== '') params.maxPrice = maxPrice;
+            if (SERVER_SORTS[sortConfig.key]) params.sort = SERVER_SORTS[sortConfig.key][sortConfig.direction];
+
             // Utiliser le proxy React
-            const response = await axios.get('/product-service/products', {
+            const response = await axios.get('/product-service/products/search', {
+                params,
                 headers: {
                     'Authorization': `Bearer ${token}`,
                     'Content-Type': 'application/json'
@@ -32,7 +53,9 @@ const ProductList = ({ keycloak }) => {
                 timeout: 10000
             });
 
-            setProducts(response.data || []);
+            setProducts(response.data?.products || []);
+            setTotal(response.data?.total || 0);
+            setPriceFacets(response.data?.priceFacets || []);
         } catch (err) {
             console.error('Erreur:', err);
 
@@ -49,10 +72,12 @@ const ProductList = ({ keycloak }) => {
         } finally {
             setLoading(false);
         }
-    }, [keycloak]);
+    }, [keycloak, query, minPrice, maxPrice, sortConfig]);
 
+    // Attendre la fin de la saisie avant d'interroger le serveur
     useEffect(() => {
-        fetchProducts();
+        const timer = setTimeout(fetchProducts, 300);
+        return () => clearTimeout(timer);
     }, [fetchProducts]);
 
     // Fonction de tri
@@ -66,7 +91,7 @@ const ProductList = ({ keycloak }) => {
 
     // Produits triés
     const sortedProducts = React.useMemo(() => {
-        if (!sortConfig.key) return products;
+        if (!sortConfig.key || sortConfig.key === 'price') return products;
 
         return [...products].sort((a, b) => {
             if (a[sortConfig.key] < b[sortConfig.key]) {
@@ -93,7 +118,7 @@ const ProductList = ({ keycloak }) => {
         return sortConfig.direction === 'asc' ? '⬆️' : '⬇️';
     };
 
-    if (loading) {
+    if (loading && products.length === 0) {
         return (
             <div className="loading-section">
                 <div className="spinner"></div>
@@ -120,7 +145,8 @@ const ProductList = ({ keycloak }) => {
                 <h2>📋 Catalogue des Produits</h2>
                 <div className="table-info">
                     <span className="product-count">
-                        {products.length} produit{products.length !== 1 ? 's' : ''}
+                        {total} produit{total !== 1 ? 's' : ''}
+                        {total > products.length ? ` (${products.length} affichés)` : ''}
                     </span>
                     <button
                         className="refresh-btn"
@@ -132,6 +158,43 @@ const ProductList = ({ keycloak }) => {
                 </div>
             </div>
 
+            <div className="search-bar">
+                <input
+                    type="search"
+                    placeholder="Rechercher un produit..."
+                    value={query}
+                    onChange={(e) => setQuery(e.target.value)}
+                />
+                <input
+                    type="number"
+                    min="0"
+                    placeholder="Prix min"
+                    value={minPrice}
+                    onChange={(e) => setMinPrice(e.target.value)}
+                />
+                <input
+                    type="number"
+                    min="0"
+                    placeholder="Prix max"
+                    value={maxPrice}
+                    onChange={(e) => setMaxPrice(e.target.value)}
+                />
+                <div className="price-facets">
+                    {priceFacets.filter(facet => facet.count > 0).map(facet => (
+                        <button
+                            key={facet.from}
+                            className="facet-btn"
+                            onClick={() => {
+                                setMinPrice(String(facet.from));
+                                setMaxPrice(facet.to != null ? String(facet.to) : '');
+                            }}
+                        >
+                            {facet.to != null ? `${facet.from} - ${facet.to} €` : `${facet.from} € +`} ({facet.count})
+                        </button>
+                    ))}
+                </div>
+            </div>
+
             {products.length === 0 ? (
                 <div className="empty-table">
                     <p>📭 Aucun produit disponible dans la base de données</p>
@@ -55,4 +55,24 @@ export const getCommands = async (token) => {
     }
 };
 
+// Fonction pour récupérer les commandes de l'utilisateur connecté, les plus récentes d'abord
+export const getMyCommands = async (token, page = 0, size = 20) => {
+    try {
+        const response = await axios.get(`${API_GATEWAY_URL}/command-service/commands/me`, {
+            params: { page, size },
+            headers: {
+                'Authorization': `Bearer ${token}`,
+                'Content-Type': 'application/json'
+            }
+        });
+        return {
+            commands: response.data,
+            hasNext: response.headers['x-has-next'] === 'true'
+        };
+    } catch (error) {
+        console.error('Erreur lors de la récupération de mes commandes:', error);
+        throw error;
+    }
+};
+
 export default api;
\ No newline at end of file
@@ -0,0 +1,18 @@
+package org.example.gatewayservice.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCacheConfig {
+
+    @Bean
+    ResponseCacheFilter responseCacheFilter(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        return new ResponseCacheFilter(properties, meterRegistry, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,255 @@
+package org.example.gatewayservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.gatewayservice.security.EdgeAuthenticationFilter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Caches successful GET responses under the configured path prefixes, answers conditional
+// requests with 304, and drops cached entries when a write goes through the gateway.
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private static final Set<HttpMethod> WRITE_METHODS = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+    private static final Set<MediaType> STREAMING_TYPES = Set.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+    // Not replayed on a hit: hop-by-hop headers, cookies, and what the hit sets itself
+    private static final Set<String> UNCACHED_HEADERS = Set.of(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE,
+            HttpHeaders.SET_COOKIE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.ETAG, "X-Cache");
+
+    private final ResponseCacheProperties properties;
+    private final ResponseCacheStore store;
+    private final Clock clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.properties = properties;
+        this.store = new ResponseCacheStore(properties.getMaxSize().toBytes());
+        this.clock = clock;
+        this.hits = meterRegistry.counter("gateway.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("gateway.cache.requests", "result", "miss");
+        this.notModified = meterRegistry.counter("gateway.cache.requests", "result", "not_modified");
+        Gauge.builder("gateway.cache.size.bytes", store, ResponseCacheStore::sizeBytes).register(meterRegistry);
+        Gauge.builder("gateway.cache.entries", store, ResponseCacheStore::size).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().value();
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            // Before, so nothing stale is served meanwhile, and after, to drop what was cached during the write
+            invalidate(path);
+            return chain.filter(exchange).doFinally(signal -> invalidate(path));
+        }
+        Duration ttl = ttlFor(path);
+        if (request.getMethod() != HttpMethod.GET || ttl == null) {
+            return chain.filter(exchange);
+        }
+
+        String key = cacheKey(exchange);
+        ResponseCacheStore.Entry entry = store.get(key, clock.millis());
+        if (entry != null) {
+            return writeCached(exchange, entry);
+        }
+        misses.increment();
+        CachingResponse response = new CachingResponse(exchange, key, path, ttl);
+        return chain.filter(exchange.mutate().response(response).build());
+    }
+
+    @Override
+    public int getOrder() {
+        // Must wrap the response before the Netty write filter writes the upstream body into it
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    ResponseCacheStore getStore() {
+        return store;
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, ResponseCacheStore.Entry entry) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(entry.headers());
+        headers.setETag(entry.etag());
+        headers.set("X-Cache", "HIT");
+        if (matchesEtag(exchange.getRequest(), entry.etag())) {
+            notModified.increment();
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        hits.increment();
+        response.setStatusCode(HttpStatusCode.valueOf(entry.status()));
+        headers.setContentLength(entry.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(entry.body())));
+    }
+
+    private void invalidate(String path) {
+        store.invalidatePrefix(resourcePrefix(path));
+        for (Map.Entry<String, List<String>> rule : properties.getInvalidateOn().entrySet()) {
+            if (ResponseCacheStore.matchesPrefix(path, rule.getKey())) {
+                rule.getValue().forEach(store::invalidatePrefix);
+            }
+        }
+    }
+
+    // "/product-service/products/42/quantity" -> "/product-service/products": the whole collection of the written resource
+    private static String resourcePrefix(String path) {
+        int serviceEnd = path.indexOf('/', 1);
+        if (serviceEnd < 0) {
+            return path;
+        }
+        int collectionEnd = path.indexOf('/', serviceEnd + 1);
+        return collectionEnd < 0 ? path : path.substring(0, collectionEnd);
+    }
+
+    private Duration ttlFor(String path) {
+        Duration ttl = null;
+        int longestPrefix = -1;
+        for (Map.Entry<String, Duration> rule : properties.getTtl().entrySet()) {
+            if (path.startsWith(rule.getKey()) && rule.getKey().length() > longestPrefix) {
+                ttl = rule.getValue();
+                longestPrefix = rule.getKey().length();
+            }
+        }
+        return ttl;
+    }
+
+    private String cacheKey(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        StringBuilder key = new StringBuilder(request.getPath().value());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        // Edge authentication already validated the caller: share entries between callers with the same roles
+        String authorities = exchange.getAttribute(EdgeAuthenticationFilter.AUTHORITIES_ATTRIBUTE);
+        if (authorities != null) {
+            return key.append('|').append(authorities).toString();
+        }
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (properties.isKeyByAuthorization() && authorization != null) {
+            key.append('|').append(sha256(authorization));
+        }
+        return key.toString();
+    }
+
+    private static HttpHeaders replayedHeaders(HttpHeaders upstream) {
+        HttpHeaders headers = new HttpHeaders();
+        upstream.forEach((name, values) -> {
+            if (UNCACHED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                headers.addAll(name, values);
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private static boolean matchesEtag(ServerHttpRequest request, String etag) {
+        List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        return ifNoneMatch.contains(etag) || ifNoneMatch.contains("*");
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final String path;
+        private final Duration ttl;
+        // Taken before the request is proxied, a write invalidating the path since then makes the body stale
+        private final long startGeneration;
+
+        CachingResponse(ServerWebExchange exchange, String key, String path, Duration ttl) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.path = path;
+            this.ttl = ttl;
+            this.startGeneration = store.generation();
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isCacheable()) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(Flux.from(body)).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+
+                String etag = "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+                HttpHeaders headers = getHeaders();
+                headers.setETag(etag);
+                headers.set("X-Cache", "MISS");
+                if (bytes.length <= properties.getMaxEntrySize().toBytes()) {
+                    store.putIfNotInvalidatedSince(key, new ResponseCacheStore.Entry(path, HttpStatus.OK.value(),
+                            replayedHeaders(headers), bytes, etag, clock.millis() + ttl.toMillis()), startGeneration);
+                }
+                if (matchesEtag(exchange.getRequest(), etag)) {
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                    return setComplete();
+                }
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+
+        private boolean isCacheable() {
+            HttpHeaders headers = getHeaders();
+            if (getStatusCode() != HttpStatus.OK || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return false;
+            }
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl != null && (cacheControl.contains("no-store") || cacheControl.contains("private"))) {
+                return false;
+            }
+            MediaType contentType = headers.getContentType();
+            if (contentType != null && STREAMING_TYPES.stream().anyMatch(contentType::isCompatibleWith)) {
+                return false;
+            }
+            long contentLength = headers.getContentLength();
+            return contentLength < 0 || contentLength <= properties.getMaxEntrySize().toBytes();
+        }
+    }
+}
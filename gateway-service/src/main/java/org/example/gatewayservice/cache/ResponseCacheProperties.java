@@ -0,0 +1,72 @@
+package org.example.gatewayservice.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "gateway.cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+    // Upper bound of all cached bodies together; least recently used entries are evicted beyond it
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+    // Separate cache entries per Authorization header, so a response is only replayed to the caller it was authorized for
+    private boolean keyByAuthorization = true;
+    // Only GETs under one of these path prefixes are cached, each with its own TTL
+    private Map<String, Duration> ttl = new LinkedHashMap<>();
+    // Extra prefixes to invalidate when a write goes through the given prefix
+    private Map<String, List<String>> invalidateOn = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public boolean isKeyByAuthorization() {
+        return keyByAuthorization;
+    }
+
+    public void setKeyByAuthorization(boolean keyByAuthorization) {
+        this.keyByAuthorization = keyByAuthorization;
+    }
+
+    public Map<String, Duration> getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Map<String, Duration> ttl) {
+        this.ttl = ttl;
+    }
+
+    public Map<String, List<String>> getInvalidateOn() {
+        return invalidateOn;
+    }
+
+    public void setInvalidateOn(Map<String, List<String>> invalidateOn) {
+        this.invalidateOn = invalidateOn;
+    }
+}
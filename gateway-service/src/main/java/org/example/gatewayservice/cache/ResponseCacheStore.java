@@ -0,0 +1,118 @@
+package org.example.gatewayservice.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU store bounded by the total size of the cached bodies
+public class ResponseCacheStore {
+
+    // headers are the upstream response headers replayed on a hit, without ETag (its own field) and Content-Length
+    public record Entry(String path, int status, HttpHeaders headers, byte[] body, String etag, long expiresAtMillis) {
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+
+    // Distinct prefixes whose last invalidation is remembered; past it they are forgotten all at once
+    private static final int MAX_INVALIDATED_PREFIXES = 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long sizeBytes;
+    // Counts invalidations, so a response can be checked against those that happened while it was fetched
+    private long generation;
+    private final Map<String, Long> invalidatedAt = new HashMap<>();
+    private long forgottenBefore;
+
+    public ResponseCacheStore(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized Entry get(String key, long nowMillis) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isExpired(nowMillis)) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        remove(key);
+        entries.put(key, entry);
+        sizeBytes += entry.body().length;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            sizeBytes -= eldest.next().getValue().body().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    // Put of a response fetched since the given generation, skipped if its path was invalidated meanwhile:
+    // the upstream may have read it before the write that invalidated it
+    public synchronized boolean putIfNotInvalidatedSince(String key, Entry entry, long startGeneration) {
+        if (startGeneration < forgottenBefore) {
+            return false;
+        }
+        for (Map.Entry<String, Long> invalidation : invalidatedAt.entrySet()) {
+            if (invalidation.getValue() > startGeneration && matchesPrefix(entry.path(), invalidation.getKey())) {
+                return false;
+            }
+        }
+        put(key, entry);
+        return true;
+    }
+
+    public synchronized void invalidatePrefix(String pathPrefix) {
+        generation++;
+        if (invalidatedAt.size() >= MAX_INVALIDATED_PREFIXES && !invalidatedAt.containsKey(pathPrefix)) {
+            invalidatedAt.clear();
+            forgottenBefore = generation;
+        }
+        invalidatedAt.put(pathPrefix, generation);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (matchesPrefix(entry.path(), pathPrefix)) {
+                sizeBytes -= entry.body().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // On a segment boundary: "/products/1" covers "/products/1" and "/products/1/reviews", not "/products/10"
+    static boolean matchesPrefix(String path, String prefix) {
+        if (!path.startsWith(prefix)) {
+            return false;
+        }
+        if (path.length() == prefix.length() || prefix.endsWith("/")) {
+            return true;
+        }
+        char next = path.charAt(prefix.length());
+        return next == '/' || next == '?';
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            sizeBytes -= removed.body().length;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.gatewayservice.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(EdgeAuthProperties.class)
+public class EdgeAuthConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.edge-auth.enabled", havingValue = "true")
+    ReactiveJwtDecoder edgeJwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                                      @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri) {
+        NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return decoder;
+    }
+
+    @Bean
+    EdgeAuthenticationFilter edgeAuthenticationFilter(EdgeAuthProperties properties,
+                                                      ObjectProvider<ReactiveJwtDecoder> edgeJwtDecoder,
+                                                      MeterRegistry meterRegistry) {
+        return new EdgeAuthenticationFilter(properties, edgeJwtDecoder.getIfAvailable(), meterRegistry, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.gatewayservice.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "gateway.edge-auth")
+public class EdgeAuthProperties {
+
+    // When on, the gateway validates the Keycloak token and forwards a signed internal identity instead
+    private boolean enabled = false;
+    // HMAC-SHA256 key shared with the downstream services, at least 32 bytes
+    private String secret;
+    private String header = "X-Internal-Identity";
+    private String issuer = "gateway-service";
+    // Lifetime of a minted identity; a minted identity is reused for half of it
+    private Duration ttl = Duration.ofSeconds(60);
+    private long maxCachedIdentities = 10_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public long getMaxCachedIdentities() {
+        return maxCachedIdentities;
+    }
+
+    public void setMaxCachedIdentities(long maxCachedIdentities) {
+        this.maxCachedIdentities = maxCachedIdentities;
+    }
+}
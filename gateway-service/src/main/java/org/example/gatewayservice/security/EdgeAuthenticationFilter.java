@@ -0,0 +1,214 @@
+package org.example.gatewayservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+// Validates the Keycloak token once at the edge and replaces it with a short-lived HS256 identity
+// that the services verify with a single HMAC. Incoming identity headers are always stripped.
+public class EdgeAuthenticationFilter implements GlobalFilter, Ordered {
+
+    // Sorted realm roles and scopes of the caller, used by the response cache to share entries per role set
+    public static final String AUTHORITIES_ATTRIBUTE = EdgeAuthenticationFilter.class.getName() + ".authorities";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final EdgeAuthProperties properties;
+    private final ReactiveJwtDecoder jwtDecoder;
+    private final JWSSigner signer;
+    private final Clock clock;
+    private final Cache<String, MintedIdentity> identities;
+    private final Counter reused;
+    private final Counter validated;
+    private final Counter rejected;
+
+    public EdgeAuthenticationFilter(EdgeAuthProperties properties, ReactiveJwtDecoder jwtDecoder, MeterRegistry meterRegistry, Clock clock) {
+        this.properties = properties;
+        this.jwtDecoder = jwtDecoder;
+        this.clock = clock;
+        this.signer = properties.isEnabled() ? macSigner(properties.getSecret()) : null;
+        this.identities = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxCachedIdentities())
+                .expireAfter(new Expiry<String, MintedIdentity>() {
+                    @Override
+                    public long expireAfterCreate(String key, MintedIdentity identity, long currentTime) {
+                        return Math.max(0, Duration.between(clock.instant(), identity.reuseUntil()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, MintedIdentity identity, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, identity, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, MintedIdentity identity, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.reused = meterRegistry.counter("gateway.edge-auth.requests", "result", "reused");
+        this.validated = meterRegistry.counter("gateway.edge-auth.requests", "result", "validated");
+        this.rejected = meterRegistry.counter("gateway.edge-auth.requests", "result", "rejected");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        // Browsers send CORS preflights without the Authorization header: they go through without an identity
+        if (!properties.isEnabled() || CorsUtils.isPreFlightRequest(exchange.getRequest())) {
+            return chain.filter(stripIdentity(exchange));
+        }
+        String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return reject(exchange);
+        }
+        String token = authorization.substring(BEARER_PREFIX.length()).trim();
+        String key = sha256(token);
+        MintedIdentity cached = identities.getIfPresent(key);
+        Mono<Optional<MintedIdentity>> identity;
+        if (cached != null) {
+            reused.increment();
+            identity = Mono.just(Optional.of(cached));
+        } else {
+            identity = jwtDecoder.decode(token)
+                    .map(jwt -> {
+                        MintedIdentity minted = mint(jwt);
+                        identities.put(key, minted);
+                        validated.increment();
+                        return Optional.of(minted);
+                    })
+                    .onErrorReturn(JwtException.class, Optional.empty());
+        }
+        return identity.flatMap(minted -> minted.isPresent() ? forward(exchange, chain, minted.get()) : reject(exchange));
+    }
+
+    @Override
+    public int getOrder() {
+        // Ahead of the response cache, so cached responses are only served to authenticated callers
+        return -100;
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, MintedIdentity identity) {
+        ServerWebExchange mutated = exchange.mutate()
+                .request(request -> request.headers(headers -> {
+                    headers.remove(HttpHeaders.AUTHORIZATION);
+                    headers.set(properties.getHeader(), identity.token());
+                }))
+                .build();
+        mutated.getAttributes().put(AUTHORITIES_ATTRIBUTE, identity.authorities());
+        return chain.filter(mutated);
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange) {
+        rejected.increment();
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        return exchange.getResponse().setComplete();
+    }
+
+    private ServerWebExchange stripIdentity(ServerWebExchange exchange) {
+        if (!exchange.getRequest().getHeaders().containsKey(properties.getHeader())) {
+            return exchange;
+        }
+        return exchange.mutate()
+                .request(request -> request.headers(headers -> headers.remove(properties.getHeader())))
+                .build();
+    }
+
+    private MintedIdentity mint(Jwt jwt) {
+        Instant now = clock.instant();
+        Instant expiresAt = now.plus(properties.getTtl());
+        if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isBefore(expiresAt)) {
+            expiresAt = jwt.getExpiresAt();
+        }
+        // Only the claims the services read: subject, username, scopes and realm roles
+        JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .issuer(properties.getIssuer())
+                .subject(jwt.getSubject())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(expiresAt))
+                .claim("preferred_username", jwt.getClaimAsString("preferred_username"));
+        TreeSet<String> authorities = new TreeSet<>();
+        String scope = jwt.getClaimAsString("scope");
+        if (scope != null) {
+            claims.claim("scope", scope);
+            for (String s : scope.split(" ")) {
+                if (!s.isEmpty()) {
+                    authorities.add("SCOPE_" + s);
+                }
+            }
+        }
+        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+        if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roles) {
+            claims.claim("realm_access", Map.of("roles", roles));
+            for (Object role : roles) {
+                authorities.add(String.valueOf(role));
+            }
+        }
+        SignedJWT identity = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims.build());
+        try {
+            identity.sign(signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Unable to sign internal identity", e);
+        }
+        Instant reuseUntil = now.plus(properties.getTtl().dividedBy(2));
+        if (expiresAt.isBefore(reuseUntil)) {
+            reuseUntil = expiresAt;
+        }
+        return new MintedIdentity(identity.serialize(), String.join(",", authorities), reuseUntil);
+    }
+
+    private static JWSSigner macSigner(String secret) {
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalStateException("gateway.edge-auth.secret must be at least 32 bytes when edge authentication is enabled");
+        }
+        try {
+            return new MACSigner(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record MintedIdentity(String token, String authorities, Instant reuseUntil) {
+    }
+}
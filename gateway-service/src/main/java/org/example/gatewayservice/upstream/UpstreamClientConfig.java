@@ -0,0 +1,41 @@
+package org.example.gatewayservice.upstream;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+
+@Configuration
+@EnableConfigurationProperties(UpstreamClientProperties.class)
+public class UpstreamClientConfig {
+
+    @Bean
+    HttpClientCustomizer upstreamHttpClientCustomizer(UpstreamClientProperties properties) {
+        return httpClient -> customize(httpClient, properties);
+    }
+
+    static HttpClient customize(HttpClient httpClient, UpstreamClientProperties properties) {
+        HttpClient customized = httpClient
+                .option(ChannelOption.TCP_NODELAY, properties.isTcpNoDelay())
+                .option(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive())
+                .protocol(properties.getProtocols().toArray(HttpProtocol[]::new));
+        if (properties.isMetrics()) {
+            // Includes connect time, whose count is the number of connections opened
+            customized = customized.metrics(true, UpstreamClientConfig::uriTag);
+        }
+        return customized;
+    }
+
+    // "/products/42?x=1" -> "/products": keeps the number of tag values bounded
+    static String uriTag(String uri) {
+        int end = uri.indexOf('/', 1);
+        int query = uri.indexOf('?');
+        if (query >= 0 && (end < 0 || query < end)) {
+            end = query;
+        }
+        return end < 0 ? uri : uri.substring(0, end);
+    }
+}
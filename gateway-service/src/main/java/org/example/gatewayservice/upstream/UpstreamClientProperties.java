@@ -0,0 +1,52 @@
+package org.example.gatewayservice.upstream;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.netty.http.HttpProtocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Socket and protocol settings of the client that proxies requests to the services; the connection pool itself
+// is configured with spring.cloud.gateway.server.webflux.httpclient.pool.*
+@ConfigurationProperties(prefix = "gateway.upstream")
+public class UpstreamClientProperties {
+
+    // H2C,HTTP11 upgrades each new connection to HTTP/2 when the service supports it; H2C alone requires it
+    private List<HttpProtocol> protocols = new ArrayList<>(List.of(HttpProtocol.HTTP11));
+    private boolean tcpNoDelay = true;
+    private boolean keepAlive = true;
+    // Per-service request metrics (reactor.netty.http.client.*), tagged with the first path segment only
+    private boolean metrics = true;
+
+    public List<HttpProtocol> getProtocols() {
+        return protocols;
+    }
+
+    public void setProtocols(List<HttpProtocol> protocols) {
+        this.protocols = protocols;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(boolean metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.gatewayservice.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheFilterTest {
+
+    private static final String CATALOG = "[{\"id\":\"p1\",\"name\":\"phone\"}]";
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final GatewayFilterChain upstream = exchange -> {
+        upstreamCalls.incrementAndGet();
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        exchange.getResponse().getHeaders().set("X-Has-Next", "true");
+        exchange.getResponse().getHeaders().set(HttpHeaders.CONNECTION, "keep-alive");
+        byte[] body = CATALOG.getBytes(StandardCharsets.UTF_8);
+        return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+    };
+
+    private ResponseCacheFilter filter;
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setTtl(Map.of("/product-service/products", Duration.ofSeconds(30)));
+        properties.setInvalidateOn(Map.of("/command-service/commands", List.of("/product-service/products")));
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now;
+            }
+        };
+        filter = new ResponseCacheFilter(properties, new SimpleMeterRegistry(), clock);
+    }
+
+    @Test
+    void secondGetIsServedFromCache() {
+        MockServerWebExchange first = get("/product-service/products");
+        MockServerWebExchange second = get("/product-service/products");
+
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+        assertThat(second.getResponse().getBodyAsString().block()).isEqualTo(CATALOG);
+        assertThat(second.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(second.getResponse().getHeaders().getETag()).isEqualTo(first.getResponse().getHeaders().getETag());
+    }
+
+    @Test
+    void hitsReplayTheUpstreamHeadersButNotHopByHopOnes() {
+        get("/product-service/products?page=0");
+        HttpHeaders hit = get("/product-service/products?page=0").getResponse().getHeaders();
+
+        assertThat(hit.getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(hit.getFirst("X-Has-Next")).isEqualTo("true");
+        assertThat(hit.getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(hit.containsKey(HttpHeaders.CONNECTION)).isFalse();
+    }
+
+    @Test
+    void matchingIfNoneMatchGets304() {
+        String etag = get("/product-service/products").getResponse().getHeaders().getETag();
+
+        MockServerWebExchange conditional = exchange(MockServerHttpRequest.get("/product-service/products")
+                .header(HttpHeaders.IF_NONE_MATCH, etag));
+
+        assertThat(conditional.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(conditional.getResponse().getBodyAsString().block()).isEmpty();
+    }
+
+    @Test
+    void entriesExpireAfterTheirTtl() {
+        get("/product-service/products");
+        now = now.plusSeconds(31);
+        get("/product-service/products");
+
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void writesInvalidateTheCollection() {
+        get("/product-service/products");
+        get("/product-service/products/p1");
+        exchange(MockServerHttpRequest.put("/product-service/products/p1/quantity"));
+        upstreamCalls.set(0);
+
+        get("/product-service/products");
+        get("/product-service/products/p1");
+
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void placingAnOrderInvalidatesTheCatalog() {
+        get("/product-service/products");
+        exchange(MockServerHttpRequest.post("/command-service/commands"));
+        upstreamCalls.set(0);
+
+        get("/product-service/products");
+
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void responseFetchedBeforeAWriteIsNotCachedAfterIt() {
+        // The catalog is read upstream, then a quantity update is invalidated before that read is written back
+        GatewayFilterChain racingWrite = exchange -> {
+            upstreamCalls.incrementAndGet();
+            exchange(MockServerHttpRequest.put("/product-service/products/p1/quantity"));
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                    .wrap(CATALOG.getBytes(StandardCharsets.UTF_8))));
+        };
+        MockServerWebExchange stale = MockServerWebExchange.from(MockServerHttpRequest.get("/product-service/products"));
+        filter.filter(stale, racingWrite).block();
+        upstreamCalls.set(0);
+
+        get("/product-service/products");
+
+        assertThat(stale.getResponse().getBodyAsString().block()).isEqualTo(CATALOG);
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationStopsAtPathSegmentBoundaries() {
+        ResponseCacheStore store = new ResponseCacheStore(DataSize.ofKilobytes(1).toBytes());
+        store.put("1", entry("/product-service/products/1", 1));
+        store.put("1/reviews", entry("/product-service/products/1/reviews", 1));
+        store.put("10", entry("/product-service/products/10", 1));
+
+        store.invalidatePrefix("/product-service/products/1");
+
+        assertThat(store.get("1", 0)).isNull();
+        assertThat(store.get("1/reviews", 0)).isNull();
+        assertThat(store.get("10", 0)).isNotNull();
+    }
+
+    @Test
+    void invalidateOnRulesMatchWholeSegments() {
+        get("/product-service/products");
+        exchange(MockServerHttpRequest.post("/command-service/commandsArchive"));
+        upstreamCalls.set(0);
+
+        get("/product-service/products");
+
+        assertThat(upstreamCalls.get()).isZero();
+    }
+
+    @Test
+    void responsesAreCachedPerAuthorization() {
+        exchange(MockServerHttpRequest.get("/product-service/products").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+        exchange(MockServerHttpRequest.get("/product-service/products").header(HttpHeaders.AUTHORIZATION, "Bearer b"));
+
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void pathsWithoutTtlAreNotCached() {
+        get("/command-service/commands");
+        get("/command-service/commands");
+
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedBeyondMaxSize() {
+        ResponseCacheStore store = new ResponseCacheStore(DataSize.ofBytes(10).toBytes());
+        store.put("a", entry("/a", 6));
+        store.put("b", entry("/b", 4));
+        store.get("a", 0);
+        store.put("c", entry("/c", 4));
+
+        assertThat(store.get("a", 0)).isNotNull();
+        assertThat(store.get("b", 0)).isNull();
+        assertThat(store.sizeBytes()).isEqualTo(10);
+    }
+
+    private static ResponseCacheStore.Entry entry(String path, int size) {
+        return new ResponseCacheStore.Entry(path, 200, HttpHeaders.EMPTY, new byte[size], "\"e\"", Long.MAX_VALUE);
+    }
+
+    private MockServerWebExchange get(String path) {
+        return exchange(MockServerHttpRequest.get(path));
+    }
+
+    private MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, upstream).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.gatewayservice.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EdgeAuthenticationFilterTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private static RSAKey keycloakKey;
+
+    private final AtomicReference<ServerWebExchangeSnapshot> forwarded = new AtomicReference<>();
+    private final GatewayFilterChain upstream = exchange -> {
+        forwarded.set(new ServerWebExchangeSnapshot(exchange.getRequest(),
+                exchange.getAttribute(EdgeAuthenticationFilter.AUTHORITIES_ATTRIBUTE)));
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        return exchange.getResponse().setComplete();
+    };
+    private final AtomicInteger decodes = new AtomicInteger();
+
+    private EdgeAuthProperties properties;
+    private ReactiveJwtDecoder decoder;
+
+    @BeforeAll
+    static void generateKey() throws Exception {
+        keycloakKey = new RSAKeyGenerator(2048).keyID("kc").generate();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new EdgeAuthProperties();
+        properties.setEnabled(true);
+        properties.setSecret(SECRET);
+        ReactiveJwtDecoder nimbus = NimbusReactiveJwtDecoder.withPublicKey(keycloakKey.toRSAPublicKey()).build();
+        decoder = token -> {
+            decodes.incrementAndGet();
+            return nimbus.decode(token);
+        };
+    }
+
+    @Test
+    void validTokenIsReplacedBySignedIdentity() throws Exception {
+        MockServerWebExchange exchange = call(filter(), "Bearer " + keycloakToken(Instant.now().plusSeconds(300)));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        ServerHttpRequest request = forwarded.get().request();
+        assertThat(request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)).isFalse();
+        SignedJWT identity = SignedJWT.parse(request.getHeaders().getFirst("X-Internal-Identity"));
+        assertThat(identity.getHeader().getAlgorithm()).isEqualTo(JWSAlgorithm.HS256);
+        assertThat(identity.verify(new MACVerifier(SECRET))).isTrue();
+        JWTClaimsSet claims = identity.getJWTClaimsSet();
+        assertThat(claims.getIssuer()).isEqualTo("gateway-service");
+        assertThat(claims.getSubject()).isEqualTo("alice-id");
+        assertThat(claims.getStringClaim("preferred_username")).isEqualTo("alice");
+        assertThat(claims.getJSONObjectClaim("realm_access").get("roles")).isEqualTo(List.of("ADMIN", "USER"));
+        assertThat(claims.getExpirationTime().toInstant()).isBefore(Instant.now().plusSeconds(61));
+        assertThat(forwarded.get().authorities()).isEqualTo("ADMIN,SCOPE_openid,USER");
+    }
+
+    @Test
+    void identityIsReusedForTheSameToken() throws Exception {
+        EdgeAuthenticationFilter filter = filter();
+        String authorization = "Bearer " + keycloakToken(Instant.now().plusSeconds(300));
+
+        call(filter, authorization);
+        String first = forwarded.get().request().getHeaders().getFirst("X-Internal-Identity");
+        call(filter, authorization);
+
+        assertThat(decodes.get()).isEqualTo(1);
+        assertThat(forwarded.get().request().getHeaders().getFirst("X-Internal-Identity")).isEqualTo(first);
+    }
+
+    @Test
+    void invalidOrMissingTokenIsRejectedAtTheEdge() throws Exception {
+        EdgeAuthenticationFilter filter = filter();
+
+        assertThat(call(filter, "Bearer " + keycloakToken(Instant.now().minusSeconds(300))).getResponse().getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(call(filter, "Bearer not-a-jwt").getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(call(filter, null).getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(forwarded.get()).isNull();
+    }
+
+    @Test
+    void corsPreflightGoesThroughWithoutAToken() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.options("/product-service/products")
+                .header(HttpHeaders.ORIGIN, "http://localhost:3000")
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "GET")
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "authorization")
+                .header("X-Internal-Identity", "forged"));
+
+        filter().filter(exchange, upstream).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(forwarded.get().request().getHeaders().containsKey("X-Internal-Identity")).isFalse();
+        assertThat(call(filter(), null).getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void spoofedIdentityIsStrippedWhenDisabled() {
+        properties.setEnabled(false);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/product-service/products")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer whatever")
+                .header("X-Internal-Identity", "forged"));
+
+        filter().filter(exchange, upstream).block();
+
+        assertThat(forwarded.get().request().getHeaders().containsKey("X-Internal-Identity")).isFalse();
+        assertThat(forwarded.get().request().getHeaders().getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer whatever");
+    }
+
+    private EdgeAuthenticationFilter filter() {
+        return new EdgeAuthenticationFilter(properties, decoder, new SimpleMeterRegistry(), Clock.systemUTC());
+    }
+
+    private MockServerWebExchange call(EdgeAuthenticationFilter filter, String authorization) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/product-service/products");
+        if (authorization != null) {
+            request.header(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, upstream).block();
+        return exchange;
+    }
+
+    private static String keycloakToken(Instant expiresAt) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("alice-id")
+                .issueTime(Date.from(expiresAt.minusSeconds(600)))
+                .expirationTime(Date.from(expiresAt))
+                .claim("preferred_username", "alice")
+                .claim("scope", "openid")
+                .claim("realm_access", Map.of("roles", List.of("ADMIN", "USER")))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(keycloakKey.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(keycloakKey));
+        return jwt.serialize();
+    }
+
+    private record ServerWebExchangeSnapshot(ServerHttpRequest request, String authorities) {
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.gatewayservice.upstream;
+
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends concurrent requests to a local service stub (20 ms per request) through a small connection pool,
+ * over HTTP/1.1 and over h2c. The benchmark sends bursts over both and logs their latency percentiles.
+ */
+class UpstreamClientConfigTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamClientConfigTest.class);
+
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int CONCURRENCY = 64;
+
+    // Client ports seen by the stub (one per TCP connection) and the most requests it served at once
+    private final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private DisposableServer service;
+
+    @BeforeEach
+    void startService() {
+        service = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .doOnChannelInit((observer, channel, remoteAddress) -> connections.add(((InetSocketAddress) channel.remoteAddress()).getPort()))
+                .handle((request, response) -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return response.header("Content-Type", "application/json")
+                            .sendString(Mono.just("{\"id\":\"p1\"}").delayElement(Duration.ofMillis(20))
+                                    .doOnNext(body -> inFlight.decrementAndGet()));
+                })
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopService() {
+        service.disposeNow();
+    }
+
+    @Test
+    void uriTagKeepsFirstPathSegment() {
+        assertThat(UpstreamClientConfig.uriTag("/products/42")).isEqualTo("/products");
+        assertThat(UpstreamClientConfig.uriTag("/products?page=1")).isEqualTo("/products");
+        assertThat(UpstreamClientConfig.uriTag("/products")).isEqualTo("/products");
+    }
+
+    @Test
+    void h2cSendsConcurrentRequestsOverASingleConnection() {
+        UpstreamClientProperties h2c = new UpstreamClientProperties();
+        h2c.setProtocols(List.of(HttpProtocol.H2C));
+        ConnectionProvider h2cPool = ConnectionProvider.builder("h2c").maxConnections(1).pendingAcquireMaxCount(-1).build();
+        try {
+            HttpClient h2cClient = UpstreamClientConfig.customize(HttpClient.create(h2cPool), h2c);
+            assertThat(version(h2cClient).text()).isEqualTo("HTTP/2.0");
+
+            // Over HTTP/1.1 a single connection would serve them one after the other
+            assertThat(run(h2cClient, CONCURRENCY)).hasSize(CONCURRENCY);
+            assertThat(connections).hasSize(1);
+            assertThat(maxInFlight.get()).isGreaterThan(1);
+        } finally {
+            h2cPool.dispose();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void h2cMultiplexesRequestsInsteadOfWaitingForPooledConnections() {
+        int requests = Integer.getInteger("benchmark.requests", 2_000);
+
+        UpstreamClientProperties http11 = new UpstreamClientProperties();
+        UpstreamClientProperties h2c = new UpstreamClientProperties();
+        h2c.setProtocols(List.of(HttpProtocol.H2C));
+
+        ConnectionProvider http11Pool = ConnectionProvider.builder("http11").maxConnections(MAX_CONNECTIONS).pendingAcquireMaxCount(-1).build();
+        ConnectionProvider h2cPool = ConnectionProvider.builder("h2c").maxConnections(MAX_CONNECTIONS).pendingAcquireMaxCount(-1).build();
+        try {
+            HttpClient http11Client = UpstreamClientConfig.customize(HttpClient.create(http11Pool), http11);
+            HttpClient h2cClient = UpstreamClientConfig.customize(HttpClient.create(h2cPool), h2c);
+
+            assertThat(version(http11Client)).isEqualTo(HttpVersion.HTTP_1_1);
+
+            // Warm up
+            run(http11Client, 200);
+            run(h2cClient, 200);
+
+            long[] http11Latencies = run(http11Client, requests);
+            long[] h2cLatencies = run(h2cClient, requests);
+            log.info("{} requests, {} concurrent, {} connections", requests, CONCURRENCY, MAX_CONNECTIONS);
+            logLatencies("HTTP/1.1", http11Latencies);
+            logLatencies("h2c", h2cLatencies);
+        } finally {
+            http11Pool.dispose();
+            h2cPool.dispose();
+        }
+    }
+
+    private HttpVersion version(HttpClient client) {
+        return client.get()
+                .uri("http://localhost:" + service.port() + "/products/p1")
+                .responseSingle((response, body) -> body.then(Mono.just(response.version())))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private long[] run(HttpClient client, int requests) {
+        String uri = "http://localhost:" + service.port() + "/products/p1";
+        return Flux.range(0, requests)
+                .flatMap(i -> Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return client.get().uri(uri)
+                            .responseSingle((response, body) -> body.asString())
+                            .map(body -> System.nanoTime() - start);
+                }), CONCURRENCY)
+                .collectList()
+                .map(latencies -> latencies.stream().mapToLong(Long::longValue).sorted().toArray())
+                .block(Duration.ofMinutes(2));
+    }
+
+    private static void logLatencies(String protocol, long[] sortedLatencies) {
+        log.info(String.format("%-9s p50 %.1f ms  p99 %.1f ms", protocol, percentile(sortedLatencies, 0.5), percentile(sortedLatencies, 0.99)));
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        return sortedLatencies[(int) Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.loadtests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Stand-in for the Keycloak realm of the perf profile: serves the static JWK set of PerfTokens, and tokens
+// for any username through the password grant (e.g. to call the services with curl while they run)
+public final class PerfIssuer {
+
+    public static final int DEFAULT_PORT = 8090;
+    static final String CERTS_PATH = PerfTokens.REALM_PATH + "/protocol/openid-connect/certs";
+    static final String TOKEN_PATH = PerfTokens.REALM_PATH + "/protocol/openid-connect/token";
+
+    private final PerfTokens tokens;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private PerfIssuer(int port) throws IOException {
+        tokens = new PerfTokens(port);
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        String jwkSet = tokens.jwkSet();
+        server.createContext(CERTS_PATH, exchange -> respond(exchange, 200, jwkSet));
+        server.createContext(PerfTokens.REALM_PATH + "/.well-known/openid-configuration", exchange -> respond(exchange, 200,
+                "{\"issuer\":\"" + tokens.issuer() + "\",\"jwks_uri\":\"http://localhost:" + port + CERTS_PATH
+                        + "\",\"token_endpoint\":\"http://localhost:" + port + TOKEN_PATH + "\"}"));
+        server.createContext(TOKEN_PATH, this::token);
+    }
+
+    public static PerfIssuer start(int port) throws IOException {
+        PerfIssuer perfIssuer = new PerfIssuer(port);
+        perfIssuer.server.start();
+        return perfIssuer;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        PerfIssuer perfIssuer = start(port);
+        System.out.println("perf issuer " + perfIssuer.tokens.issuer() + ": JWK set at " + CERTS_PATH + ", tokens at " + TOKEN_PATH);
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // Resource owner password grant as Keycloak answers it; any password is accepted
+    private void token(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            respond(exchange, 405, "{\"error\":\"invalid_request\"}");
+            return;
+        }
+        String username = form(exchange.getRequestBody()).get("username");
+        if (username == null || username.isBlank()) {
+            respond(exchange, 400, "{\"error\":\"invalid_request\",\"error_description\":\"username is required\"}");
+            return;
+        }
+        respond(exchange, 200, "{\"access_token\":\"" + tokens.mint(username) + "\",\"token_type\":\"Bearer\",\"expires_in\":"
+                + PerfTokens.TTL.toSeconds() + "}");
+    }
+
+    private static Map<String, String> form(InputStream body) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : new String(body.readAllBytes(), StandardCharsets.UTF_8).split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
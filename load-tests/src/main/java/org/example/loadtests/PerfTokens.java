@@ -0,0 +1,95 @@
+package org.example.loadtests;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Access tokens shaped like the realm's Keycloak tokens (preferred_username, realm_access.roles), signed with
+// the static key in perf-issuer-key.json. That key is a test fixture: it must never be trusted outside load tests.
+public final class PerfTokens {
+
+    public static final String REALM_PATH = "/realms/perf";
+    static final Duration TTL = Duration.ofHours(1);
+
+    private final RSAKey key;
+    private final RSASSASigner signer;
+    private final String issuer;
+
+    public PerfTokens(int issuerPort) {
+        key = loadKey();
+        try {
+            signer = new RSASSASigner(key);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Invalid perf issuer key", e);
+        }
+        issuer = "http://localhost:" + issuerPort + REALM_PATH;
+    }
+
+    public String issuer() {
+        return issuer;
+    }
+
+    // Public part only, as served at the JWK set URI
+    public String jwkSet() {
+        return new JWKSet(key.toPublicJWK()).toString();
+    }
+
+    // Usernames starting with "admin" also get the ADMIN realm role
+    public String mint(String username) {
+        Instant now = Instant.now();
+        List<String> roles = username.startsWith("admin") ? List.of("USER", "ADMIN") : List.of("USER");
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject(UUID.nameUUIDFromBytes(username.getBytes(StandardCharsets.UTF_8)).toString())
+                .jwtID(UUID.randomUUID().toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(TTL)))
+                .claim("typ", "Bearer")
+                .claim("azp", "perf-client")
+                .claim("scope", "openid profile email")
+                .claim("preferred_username", username)
+                .claim("realm_access", Map.of("roles", roles))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256)
+                .keyID(key.getKeyID())
+                .type(JOSEObjectType.JWT)
+                .build(), claims);
+        try {
+            jwt.sign(signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwt.serialize();
+    }
+
+    private static RSAKey loadKey() {
+        try (InputStream in = PerfTokens.class.getResourceAsStream("/perf-issuer-key.json")) {
+            if (in == null) {
+                throw new IllegalStateException("perf-issuer-key.json not found");
+            }
+            return RSAKey.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid perf-issuer-key.json", e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.loadtests;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.PopulationBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Session;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+import io.gatling.javaapi.http.HttpRequestActionBuilder;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+// Open-model load through the gateway: catalog browsing, checkout and order history, each with its own
+// arrival rate. The services run with the perf profile; the JWK set they validate tokens with is served by an
+// embedded PerfIssuer (unless one is already running on its port), tokens are minted here with the same key.
+// Gatling prints throughput and response time percentiles per request and writes the HTML report to target/gatling.
+public class EcomSimulation extends Simulation {
+
+    private static final String BASE_URL = System.getProperty("baseUrl", "http://localhost:8888");
+    private static final int ISSUER_PORT = Integer.getInteger("issuerPort", PerfIssuer.DEFAULT_PORT);
+    // arrivals per second of each scenario once ramped up
+    private static final double BROWSE_RATE = Double.parseDouble(System.getProperty("browseRate", "20"));
+    private static final double CHECKOUT_RATE = Double.parseDouble(System.getProperty("checkoutRate", "5"));
+    private static final double HISTORY_RATE = Double.parseDouble(System.getProperty("historyRate", "5"));
+    private static final int RAMP_SECONDS = Integer.getInteger("rampSeconds", 30);
+    private static final int DURATION_SECONDS = Integer.getInteger("durationSeconds", 120);
+    // distinct clients: each has its own order history
+    private static final int CLIENTS = Integer.getInteger("clients", 500);
+    private static final int CATALOG_PAGES = Integer.getInteger("catalogPages", 10);
+    // the run fails above these
+    private static final int P95_MILLIS = Integer.getInteger("p95Millis", 500);
+    private static final double MAX_FAILED_PERCENT = Double.parseDouble(System.getProperty("maxFailedPercent", "1"));
+
+    private static final List<String> SEARCH_TERMS = List.of("phone", "laptop", "samsung", "sony headphones", "charger", "dell monitor");
+
+    private final PerfTokens tokens = new PerfTokens(ISSUER_PORT);
+    private PerfIssuer issuer;
+
+    private final HttpProtocolBuilder httpProtocol = http
+            .baseUrl(BASE_URL)
+            .acceptHeader("application/json")
+            .contentTypeHeader("application/json");
+
+    private final Iterator<Map<String, Object>> clients = Stream.generate(() -> Map.<String, Object>of(
+            "username", "perf-client-" + ThreadLocalRandom.current().nextInt(CLIENTS))).iterator();
+
+    private final Iterator<Map<String, Object>> searchTerms = Stream.generate(() -> Map.<String, Object>of(
+            "term", SEARCH_TERMS.get(ThreadLocalRandom.current().nextInt(SEARCH_TERMS.size())))).iterator();
+
+    // Logged in with the realm: every virtual user is a client with its own token
+    private final ChainBuilder login = feed(clients)
+            .exec(session -> session.set("token", tokens.mint(session.getString("username"))));
+
+    private final ScenarioBuilder browsing = scenario("Catalog browsing")
+            .exec(login)
+            .exec(authorized(http("catalog page").get("/product-service/products")
+                    .queryParam("page", session -> ThreadLocalRandom.current().nextInt(CATALOG_PAGES))
+                    .queryParam("size", "20"))
+                    .check(status().is(200), jsonPath("$[*].id").findRandom().saveAs("productId")))
+            .pause(1, 3)
+            .feed(searchTerms)
+            .exec(authorized(http("search").get("/product-service/products/search")
+                    .queryParam("q", "#{term}"))
+                    .check(status().is(200)))
+            .pause(1, 3)
+            .exec(authorized(http("product").get("/product-service/products/#{productId}"))
+                    .check(status().is(200)));
+
+    private final ScenarioBuilder checkout = scenario("Checkout")
+            .exec(login)
+            .exec(authorized(http("catalog page").get("/product-service/products")
+                    .queryParam("page", session -> ThreadLocalRandom.current().nextInt(CATALOG_PAGES))
+                    .queryParam("size", "20"))
+                    .check(status().is(200), jsonPath("$[*].id").findRandom(3).saveAs("productIds")))
+            .pause(1, 3)
+            // 202 when the asynchronous order pipeline is enabled
+            .exec(authorized(http("place order").post("/command-service/commands")
+                    .header("Idempotency-Key", session -> UUID.randomUUID().toString())
+                    .body(StringBody(EcomSimulation::orderBody)))
+                    .check(status().in(201, 202)));
+
+    private final ScenarioBuilder history = scenario("Order history")
+            .exec(login)
+            .exec(authorized(http("my orders").get("/command-service/commands/me")
+                    .queryParam("page", "0")
+                    .queryParam("size", "20"))
+                    .check(status().is(200)))
+            .pause(1, 3)
+            .exec(authorized(http("my orders, next page").get("/command-service/commands/me")
+                    .queryParam("page", "1")
+                    .queryParam("size", "20"))
+                    .check(status().is(200)));
+
+    {
+        setUp(
+                open(browsing, BROWSE_RATE),
+                open(checkout, CHECKOUT_RATE),
+                open(history, HISTORY_RATE))
+                .protocols(httpProtocol)
+                .assertions(
+                        global().failedRequests().percent().lt(MAX_FAILED_PERCENT),
+                        global().responseTime().percentile(95.0).lt(P95_MILLIS));
+    }
+
+    @Override
+    public void before() {
+        try {
+            issuer = PerfIssuer.start(ISSUER_PORT);
+        } catch (BindException e) {
+            // Started on its own (mvn exec:java): it serves the same static key
+            System.out.println("perf issuer already running on port " + ISSUER_PORT);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void after() {
+        if (issuer != null) {
+            issuer.stop();
+        }
+    }
+
+    private static PopulationBuilder open(ScenarioBuilder scenario, double usersPerSecond) {
+        return scenario.injectOpen(
+                rampUsersPerSec(0.1).to(usersPerSecond).during(RAMP_SECONDS),
+                constantUsersPerSec(usersPerSecond).during(DURATION_SECONDS));
+    }
+
+    private static HttpRequestActionBuilder authorized(HttpRequestActionBuilder request) {
+        return request.header("Authorization", "Bearer #{token}");
+    }
+
+    private static String orderBody(Session session) {
+        List<String> productIds = session.getList("productIds");
+        return productIds.stream()
+                .map(id -> "{\"productId\":\"" + id + "\",\"quantity\":" + (1 + ThreadLocalRandom.current().nextInt(3)) + "}")
+                .collect(Collectors.joining(",", "{\"products\":[", "]}"));
+    }
+}
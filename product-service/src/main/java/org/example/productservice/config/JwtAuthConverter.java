@@ -1,5 +1,7 @@
 package org.example.productservice.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
@@ -10,22 +12,29 @@ import org.springframework.security.oauth2.server.resource.authentication.JwtGra
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Component
 public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationToken> {
     private final JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter=new JwtGrantedAuthoritiesConverter();
+    // Weak identity keys: CachingJwtDecoder returns the same Jwt instance for a cached token,
+    // so its authorities are computed once and dropped together with the Jwt
+    private final Cache<Jwt, Collection<GrantedAuthority>> authoritiesCache = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10_000)
+            .build();
     @Override
     public AbstractAuthenticationToken convert(Jwt jwt) {
-        Collection<GrantedAuthority> authorities = Stream.concat(
-                jwtGrantedAuthoritiesConverter.convert(jwt).stream(),
-                extractResourceRoles(jwt).stream()
-        ).collect(Collectors.toSet());
+        Collection<GrantedAuthority> authorities = authoritiesCache.get(jwt, this::extractAuthorities);
         return new JwtAuthenticationToken(jwt, authorities,jwt.getClaim("preferred_username"));
     }
+    private Collection<GrantedAuthority> extractAuthorities(Jwt jwt) {
+        Set<GrantedAuthority> authorities = new HashSet<>(jwtGrantedAuthoritiesConverter.convert(jwt));
+        authorities.addAll(extractResourceRoles(jwt));
+        return Set.copyOf(authorities);
+    }
     private Collection<GrantedAuthority> extractResourceRoles(Jwt jwt) {
         Map<String , Object> realmAccess;
         Collection<String> roles;
@@ -34,7 +43,11 @@ public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationTo
         }
         realmAccess = jwt.getClaim("realm_access");
         roles = (Collection<String>) realmAccess.get("roles");
-        return roles.stream().map(role->new SimpleGrantedAuthority(role)).collect(Collectors.toSet());
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        for (String role : roles) {
+            authorities.add(new SimpleGrantedAuthority(role));
+        }
+        return authorities;
     }
 
-}
\ No newline at end of file
+}
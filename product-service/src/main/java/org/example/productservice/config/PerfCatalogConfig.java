@@ -0,0 +1,55 @@
+package org.example.productservice.config;
+
+import org.example.productservice.entitie.Product;
+import org.example.productservice.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// perf profile: a catalog the size of production, with enough stock that load tests never run out.
+// Runs before the dummy data of ProductServiceApplication, which then finds the catalog filled.
+@Configuration
+@Profile("perf")
+public class PerfCatalogConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PerfCatalogConfig.class);
+
+    private static final String[] NAMES = {"phone", "laptop", "tablet", "headphones", "charger", "keyboard", "mouse", "monitor", "camera", "speaker"};
+    private static final String[] BRANDS = {"samsung", "apple", "lenovo", "sony", "logitech", "dell", "xiaomi", "asus"};
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    CommandLineRunner perfCatalog(ProductRepository productRepository,
+                                  @Value("${perf.catalog.size:1000}") int size,
+                                  @Value("${perf.catalog.quantity:100000000}") int quantity) {
+        return args -> {
+            if (productRepository.count() > 0) {
+                return;
+            }
+            List<Product> products = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String name = NAMES[i % NAMES.length];
+                String brand = BRANDS[(i / NAMES.length) % BRANDS.length];
+                products.add(Product.builder()
+                        .id(UUID.randomUUID().toString())
+                        .name(brand + " " + name + " " + i)
+                        .description(brand + " " + name + ", model " + i)
+                        .price(10.0 + (i * 37) % 2000)
+                        .quantity(quantity)
+                        .build());
+            }
+            productRepository.saveAll(products);
+            log.info("perf catalog: {} products inserted", size);
+        };
+    }
+}
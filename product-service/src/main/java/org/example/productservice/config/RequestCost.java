@@ -0,0 +1,25 @@
+package org.example.productservice.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Work done on behalf of the current HTTP request, recorded per endpoint by RequestCostFilter
+public final class RequestCost {
+
+    static final ThreadLocal<RequestCost> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger sqlStatements = new AtomicInteger();
+
+    RequestCost() {
+    }
+
+    public static void countSqlStatement() {
+        RequestCost cost = CURRENT.get();
+        if (cost != null) {
+            cost.sqlStatements.incrementAndGet();
+        }
+    }
+
+    int sqlStatements() {
+        return sqlStatements.get();
+    }
+}
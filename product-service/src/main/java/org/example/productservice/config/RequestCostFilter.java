@@ -0,0 +1,46 @@
+package org.example.productservice.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Histogram of SQL statements per request, tagged like http.server.requests
+@Component
+public class RequestCostFilter extends OncePerRequestFilter {
+
+    private static final double[] BUCKETS = {1, 2, 5, 10, 20, 50, 100, 500};
+
+    private final MeterRegistry meterRegistry;
+
+    public RequestCostFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestCost cost = new RequestCost();
+        RequestCost.CURRENT.set(cost);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestCost.CURRENT.remove();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("http.server.requests.sql.statements")
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .serviceLevelObjectives(BUCKETS)
+                    .register(meterRegistry)
+                    .record(cost.sqlStatements());
+        }
+    }
+}
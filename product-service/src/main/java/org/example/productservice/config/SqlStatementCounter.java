@@ -0,0 +1,14 @@
+package org.example.productservice.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Set as hibernate.session_factory.statement_inspector: counts every statement Hibernate prepares
+// (a JDBC batch counts once) for the current request
+public class SqlStatementCounter implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestCost.countSqlStatement();
+        return sql;
+    }
+}
@@ -1,14 +1,28 @@
 package org.example.productservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.AllArgsConstructor;
+import org.example.common.idempotency.IdempotencyService;
 import org.example.productservice.dto.ProductRequestDTO;
 import org.example.productservice.dto.ProductResponseDTO;
+import org.example.productservice.dto.ProductSearchResultDTO;
 import org.example.productservice.dto.QuantityUpdateDTO;
+import org.example.productservice.dto.StockReservationDTO;
+import org.example.productservice.service.InsufficientStockException;
+import org.example.productservice.service.ProductSearchIndex;
 import org.example.productservice.service.ProductService;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -17,6 +31,8 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<ProductResponseDTO> createProduct(@RequestBody ProductRequestDTO productRequestDTO) {
@@ -28,8 +44,12 @@ public class ProductController {
     public ResponseEntity<ProductResponseDTO> updateProduct(
             @PathVariable String id,
             @RequestBody ProductRequestDTO productRequestDTO) {
-        ProductResponseDTO updatedProduct = productService.updateProduct(id, productRequestDTO);
-        return ResponseEntity.ok(updatedProduct);
+        try {
+            ProductResponseDTO updatedProduct = productService.updateProduct(id, productRequestDTO);
+            return ResponseEntity.ok(updatedProduct);
+        } catch (ConcurrencyFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -38,24 +58,133 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    // Without parameters the whole catalog is returned; page/size or after/limit bound the response
     @GetMapping
-    public ResponseEntity<List<ProductResponseDTO>> getAllProducts() {
+    public ResponseEntity<List<ProductResponseDTO>> getAllProducts(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        if (page != null) {
+            checkPage(page, size);
+            Slice<ProductResponseDTO> slice = productService.getProductsPage(page, size);
+            return ResponseEntity.ok()
+                    .header("X-Has-Next", String.valueOf(slice.hasNext()))
+                    .body(slice.getContent());
+        }
+        if (after != null || limit != null) {
+            checkPage(0, limit != null ? limit : size);
+            List<ProductResponseDTO> products = productService.getProductsAfter(after, limit != null ? limit : size);
+            return ResponseEntity.ok(products);
+        }
         List<ProductResponseDTO> products = productService.getAllProducts();
         return ResponseEntity.ok(products);
     }
 
+    // Text search over name and description with a price range; sort is relevance (default), price_asc, price_desc or name
+    @GetMapping("/search")
+    public ResponseEntity<ProductSearchResultDTO> searchProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        ProductSearchIndex.Sort order;
+        try {
+            order = ProductSearchIndex.Sort.parse(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown sort: " + sort, e);
+        }
+        try {
+            return ResponseEntity.ok(productService.searchProducts(q, minPrice, maxPrice, order, page, size));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = outputStream -> {
+            SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream);
+            productService.streamAllProducts(product -> {
+                try {
+                    writer.write(product);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<List<ProductResponseDTO>> getProductsByIds(@RequestParam List<String> ids) {
+        List<ProductResponseDTO> products = productService.getProductsByIds(ids);
+        return ResponseEntity.ok(products);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<ProductResponseDTO>> findProductsByIds(@RequestBody List<String> ids) {
+        List<ProductResponseDTO> products = productService.getProductsByIds(ids);
+        return ResponseEntity.ok(products);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponseDTO> getProductById(@PathVariable String id) {
         ProductResponseDTO product = productService.getProductById(id);
         return ResponseEntity.ok(product);
     }
 
+    // With an Idempotency-Key, a retried update is answered from the stored response instead of being applied again
     @PutMapping("/{id}/quantity")
     public ResponseEntity<ProductResponseDTO> updateProductQuantity(
             @PathVariable String id,
-            @RequestBody QuantityUpdateDTO quantityUpdateDTO) {
-        ProductResponseDTO updatedProduct = productService.updateProductQuantity(id, quantityUpdateDTO.getQuantityChange());
-        return ResponseEntity.ok(updatedProduct);
+            @RequestBody QuantityUpdateDTO quantityUpdateDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "PUT /products/" + id + "/quantity", quantityUpdateDTO,
+                ProductResponseDTO.class,
+                () -> {
+                    try {
+                        return ResponseEntity.ok(productService.updateProductQuantity(id, quantityUpdateDTO.getQuantityChange()));
+                    } catch (ConcurrencyFailureException e) {
+                        // Still contended after the retries: the client may try again
+                        throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+                    }
+                });
+    }
+
+    // 409 only when the stock cannot be reserved, so callers can tell a rejected order from an outage:
+    // database failures stay 5xx and are retried
+    @PostMapping("/reservations")
+    public ResponseEntity<List<ProductResponseDTO>> reserveProducts(@RequestBody StockReservationDTO stockReservationDTO) {
+        try {
+            List<ProductResponseDTO> reservedProducts = productService.reserveProducts(stockReservationDTO.getItems());
+            return ResponseEntity.ok(reservedProducts);
+        } catch (InsufficientStockException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
+    @PostMapping("/reservations/release")
+    public ResponseEntity<List<ProductResponseDTO>> releaseProducts(@RequestBody StockReservationDTO stockReservationDTO) {
+        try {
+            List<ProductResponseDTO> releasedProducts = productService.releaseProducts(stockReservationDTO.getItems());
+            return ResponseEntity.ok(releasedProducts);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // PageRequest and Limit reject these with an IllegalArgumentException, which would surface as a 500
+    private static void checkPage(int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be >= 0 and size (or limit) >= 1");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package org.example.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Number of matching products priced in [from, to); to is null for the last bucket
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceFacetDTO {
+    private double from;
+    private Double to;
+    private long count;
+}
@@ -0,0 +1,20 @@
+package org.example.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+    private List<ProductResponseDTO> products;
+    // Matches of the whole query, not only of this page
+    private long total;
+    // Counted over the text matches, before the price range is applied
+    private List<PriceFacetDTO> priceFacets;
+}
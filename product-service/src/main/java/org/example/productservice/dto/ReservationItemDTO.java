@@ -0,0 +1,21 @@
+package org.example.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationItemDTO {
+    private String productId;
+    private int quantity;
+    // Order the units are reserved for: a reservation or release is applied once per order, see StockReservation
+    private String commandId;
+
+    public ReservationItemDTO(String productId, int quantity) {
+        this(productId, quantity, null);
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.productservice.entitie;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Units of a hot product taken out of product.quantity and held in memory by one instance.
+// leased - consumed is what goes back to the product when the lease is returned or reconciled.
+@Entity
+@Table(indexes = @Index(name = "idx_hot_stock_lease_instance_id", columnList = "instance_id"))
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor
+public class HotStockLease {
+    // instanceId + "/" + productId
+    @Id
+    private String id;
+    private String instanceId;
+    private String productId;
+    private long leased;
+    // Written behind: lags behind the units admitted in memory by at most one flush interval
+    private long consumed;
+    // Touched on every flush, a lease that stops being touched belongs to a dead instance
+    private Instant updatedAt;
+}
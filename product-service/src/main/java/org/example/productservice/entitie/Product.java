@@ -2,7 +2,9 @@ package org.example.productservice.entitie;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @AllArgsConstructor @NoArgsConstructor @Builder @Getter @Setter
@@ -13,4 +15,9 @@ public class Product {
     private String description;
     private double price;
     private int quantity;
-}
\ No newline at end of file
+    // Optimistic locking: an update based on a stale read fails instead of overwriting a concurrent one.
+    // Null until the first insert, which also tells Spring Data the product is new.
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+}
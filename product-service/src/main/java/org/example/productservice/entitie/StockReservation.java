@@ -0,0 +1,49 @@
+package org.example.productservice.entitie;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+// Whether the stock of an order was reserved or released, so a redelivered request changes nothing
+@Entity
+@Getter @Setter @NoArgsConstructor
+public class StockReservation implements Persistable<String> {
+    public static final String RESERVED = "RESERVED";
+    public static final String RELEASED = "RELEASED";
+
+    // Id of the order in command-service
+    @Id
+    private String commandId;
+    private String status;
+    private Instant updatedAt;
+
+    // New rows are inserted without a prior SELECT
+    @Transient
+    private boolean persisted;
+
+    public StockReservation(String commandId, String status, Instant updatedAt) {
+        this.commandId = commandId;
+        this.status = status;
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String getId() {
+        return commandId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+}
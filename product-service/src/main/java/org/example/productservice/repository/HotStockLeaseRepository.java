@@ -0,0 +1,26 @@
+package org.example.productservice.repository;
+
+import org.example.productservice.entitie.HotStockLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface HotStockLeaseRepository extends JpaRepository<HotStockLease, String> {
+
+    @Query("select l from HotStockLease l where l.instanceId = :instanceId or l.updatedAt < :staleBefore")
+    List<HotStockLease> findReconcilable(@Param("instanceId") String instanceId, @Param("staleBefore") Instant staleBefore);
+
+    // Leaves leased alone: a concurrent lease may have raised it
+    @Modifying
+    @Query("update HotStockLease l set l.consumed = :consumed, l.updatedAt = :updatedAt where l.id = :id")
+    int updateConsumed(@Param("id") String id, @Param("consumed") long consumed, @Param("updatedAt") Instant updatedAt);
+
+    // Only one instance wins a stale lease: the row is deleted if nobody touched it since it was read
+    @Modifying
+    @Query("delete from HotStockLease l where l.id = :id and l.updatedAt = :updatedAt")
+    int deleteUnchanged(@Param("id") String id, @Param("updatedAt") Instant updatedAt);
+}
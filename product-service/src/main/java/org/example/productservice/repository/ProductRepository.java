@@ -1,9 +1,41 @@
 package org.example.productservice.repository;
 
 
+import jakarta.persistence.QueryHint;
 import org.example.productservice.entitie.Product;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, String> {
 
-}
\ No newline at end of file
+    // Slice skips the count query a Page would need
+    Slice<Product> findSliceBy(Pageable pageable);
+
+    // Keyset pagination: the next page starts right after the last id of the previous one
+    List<Product> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    // Must be consumed inside a transaction so the JDBC cursor stays open
+    @Query("select p from Product p")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Product> streamAll();
+
+    // Returns 0 when the product does not exist or does not have enough stock.
+    // Bumps the version so a concurrent read-modify-write of the product fails instead of undoing the reservation.
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Product p set p.quantity = p.quantity - :quantity, p.version = p.version + 1 where p.id = :id and p.quantity >= :quantity")
+    int decrementQuantity(@Param("id") String id, @Param("quantity") int quantity);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Product p set p.quantity = p.quantity + :quantity, p.version = p.version + 1 where p.id = :id")
+    int incrementQuantity(@Param("id") String id, @Param("quantity") int quantity);
+}
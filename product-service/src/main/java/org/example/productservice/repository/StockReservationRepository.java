@@ -0,0 +1,17 @@
+package org.example.productservice.repository;
+
+import org.example.productservice.entitie.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    // Returns 0 when the reservation was released already, so concurrent releases put the units back once
+    @Modifying(flushAutomatically = true)
+    @Query("update StockReservation r set r.status = 'RELEASED', r.updatedAt = :now where r.commandId = :commandId and r.status = 'RESERVED'")
+    int markReleased(@Param("commandId") String commandId, @Param("now") Instant now);
+}
@@ -0,0 +1,73 @@
+package org.example.productservice.service;
+
+import org.example.productservice.entitie.Product;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Leased units of one product, spread over one shard per core: a decrement is a CAS on the shard
+// of the calling thread, so concurrent buyers of the same product rarely contend on the same counter.
+class HotStockCounter {
+
+    private final AtomicLong[] shards;
+    // Held to refill, rebalance, flush or return the lease; never on the decrement fast path
+    final ReentrantLock lock = new ReentrantLock();
+    // Units leased since the lease row was created; guarded by lock
+    long leased;
+    // Read without the lock by responses
+    volatile Product snapshot;
+    volatile long soldOutUntil;
+
+    HotStockCounter(int shardCount) {
+        this.shards = new AtomicLong[Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new AtomicLong();
+        }
+    }
+
+    boolean tryTake(int quantity) {
+        int home = Thread.currentThread().hashCode();
+        int mask = shards.length - 1;
+        for (int i = 0; i < shards.length; i++) {
+            AtomicLong shard = shards[(home + i) & mask];
+            long current;
+            while ((current = shard.get()) >= quantity) {
+                if (shard.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    long available() {
+        long sum = 0;
+        for (AtomicLong shard : shards) {
+            sum += shard.get();
+        }
+        return sum;
+    }
+
+    // With the lock held
+    long drain() {
+        long sum = 0;
+        for (AtomicLong shard : shards) {
+            sum += shard.getAndSet(0);
+        }
+        return sum;
+    }
+
+    // With the lock held
+    void add(long units) {
+        long perShard = units / shards.length;
+        for (AtomicLong shard : shards) {
+            shard.addAndGet(perShard);
+        }
+        shards[0].addAndGet(units - perShard * shards.length);
+    }
+
+    // With the lock held: leased units admitted in memory so far
+    long consumed() {
+        return leased - available();
+    }
+}
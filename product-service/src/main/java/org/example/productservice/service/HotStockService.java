@@ -0,0 +1,304 @@
+package org.example.productservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.productservice.entitie.HotStockLease;
+import org.example.productservice.entitie.Product;
+import org.example.productservice.repository.HotStockLeaseRepository;
+import org.example.productservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Opt-in stock handling for flash-sale products. Instead of one row update per decrement, units are
+// leased from product.quantity in chunks and admitted or rejected in memory by a sharded counter.
+// What was consumed is written behind to the lease row; the rest goes back to the product on shutdown,
+// or on the next startup (reconcile) when the instance died. Increments and full updates still go to
+// the product row. Other instances only see the product row, which never counts units leased here.
+@Service
+public class HotStockService {
+
+    // How long a product found sold out is not looked up again, unless restocked through this instance
+    private static final long SOLD_OUT_RECHECK_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final ProductRepository productRepository;
+    private final HotStockLeaseRepository hotStockLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Set<String> productIds = new HashSet<>();
+    private final int leaseSize;
+    private final Duration staleAfter;
+    private final String instanceId;
+    private final int shards = Runtime.getRuntime().availableProcessors();
+    private final Map<String, HotStockCounter> counters = new ConcurrentHashMap<>();
+    private final Counter admitted;
+    private final Counter rejected;
+    private final Counter leases;
+    private final Counter reconciled;
+
+    public HotStockService(ProductRepository productRepository,
+                           HotStockLeaseRepository hotStockLeaseRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${product.hot-stock.enabled:false}") boolean enabled,
+                           @Value("${product.hot-stock.product-ids:}") List<String> productIds,
+                           @Value("${product.hot-stock.lease-size:100}") int leaseSize,
+                           @Value("${product.hot-stock.stale-after:1m}") Duration staleAfter,
+                           @Value("${product.hot-stock.instance-id:product-service}") String instanceId) {
+        this.productRepository = productRepository;
+        this.hotStockLeaseRepository = hotStockLeaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        for (String productId : productIds) {
+            if (!productId.isBlank()) {
+                this.productIds.add(productId.trim());
+            }
+        }
+        this.leaseSize = Math.max(1, leaseSize);
+        this.staleAfter = staleAfter;
+        this.instanceId = instanceId;
+        this.admitted = meterRegistry.counter("products.hot-stock.decrements", "result", "admitted");
+        this.rejected = meterRegistry.counter("products.hot-stock.decrements", "result", "rejected");
+        this.leases = meterRegistry.counter("products.hot-stock.leases");
+        this.reconciled = meterRegistry.counter("products.hot-stock.reconciled.units");
+    }
+
+    public boolean isHot(String productId) {
+        return enabled && productIds.contains(productId);
+    }
+
+    // Units leased by this instance and not sold yet, to add to product.quantity in responses
+    public long leasedAvailable(String productId) {
+        HotStockCounter counter = counters.get(productId);
+        return counter == null ? 0 : counter.available();
+    }
+
+    // Returns the product as of the last lease; its quantity does not include the units still leased
+    public Product decrement(String productId, int quantity) {
+        HotStockCounter counter = counters.computeIfAbsent(productId, id -> new HotStockCounter(shards));
+        if (!counter.tryTake(quantity)) {
+            takeSlow(counter, productId, quantity);
+        }
+        admitted.increment();
+        return counter.snapshot;
+    }
+
+    // Decrements of several products, as for a reservation: all of them are admitted or, on the first one that
+    // is short, none is and the units already taken are given back
+    public void decrementAll(Map<String, Integer> quantities) {
+        Map<String, Integer> taken = new LinkedHashMap<>();
+        try {
+            quantities.forEach((productId, quantity) -> {
+                decrement(productId, quantity);
+                taken.put(productId, quantity);
+            });
+        } catch (RuntimeException e) {
+            taken.forEach(this::giveBack);
+            throw e;
+        }
+    }
+
+    // Units admitted by decrement but not sold after all, e.g. a reservation that was rolled back. They go back
+    // to the counter, or to the product row when the lease they were taken from has been returned meanwhile.
+    public void giveBack(String productId, int quantity) {
+        HotStockCounter counter = counters.get(productId);
+        counter.lock.lock();
+        try {
+            if (counter.leased > 0) {
+                counter.add(quantity);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> productRepository.incrementQuantity(productId, quantity));
+            }
+            counter.soldOutUntil = 0;
+        } finally {
+            counter.lock.unlock();
+        }
+    }
+
+    // Marks the product as restocked so the next decrement leases again right away
+    public void restocked(String productId) {
+        HotStockCounter counter = counters.get(productId);
+        if (counter != null) {
+            counter.soldOutUntil = 0;
+        }
+    }
+
+    // For writes that set the quantity or remove the product: the lease is returned first and
+    // decrements wait until the write is done, so no leased unit is counted twice or lost.
+    public <T> T withLeaseReturned(String productId, Supplier<T> write) {
+        HotStockCounter counter = counters.get(productId);
+        if (counter == null) {
+            return write.get();
+        }
+        counter.lock.lock();
+        try {
+            returnLease(counter, productId);
+            return write.get();
+        } finally {
+            counter.lock.unlock();
+        }
+    }
+
+    // Write-behind of the consumed units, which also keeps the leases of this instance from looking stale
+    @Scheduled(fixedDelayString = "${product.hot-stock.flush-interval-ms:100}")
+    public void flush() {
+        if (counters.isEmpty()) {
+            return;
+        }
+        Map<String, Long> consumed = new HashMap<>();
+        for (Map.Entry<String, HotStockCounter> entry : counters.entrySet()) {
+            HotStockCounter counter = entry.getValue();
+            counter.lock.lock();
+            try {
+                if (counter.leased > 0) {
+                    consumed.put(leaseId(entry.getKey()), counter.consumed());
+                }
+            } finally {
+                counter.lock.unlock();
+            }
+        }
+        if (consumed.isEmpty()) {
+            return;
+        }
+        // One transaction for all hot products; the counter locks are not held meanwhile
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status ->
+                consumed.forEach((id, units) -> hotStockLeaseRepository.updateConsumed(id, units, now)));
+    }
+
+    // Returns the unsold part of leases left behind by this instance (previous run) or by instances that
+    // stopped flushing. Units admitted after their last flush are returned as well: a crash can oversell
+    // at most one flush interval of sales, never lose stock.
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        for (HotStockLease lease : hotStockLeaseRepository.findReconcilable(instanceId, Instant.now().minus(staleAfter))) {
+            // Requests are served before the application is ready: a lease of this run is not left over
+            if (lease.getInstanceId().equals(instanceId) && counters.containsKey(lease.getProductId())) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> settle(lease));
+        }
+    }
+
+    @PreDestroy
+    public void returnLeases() {
+        for (Map.Entry<String, HotStockCounter> entry : counters.entrySet()) {
+            HotStockCounter counter = entry.getValue();
+            counter.lock.lock();
+            try {
+                returnLease(counter, entry.getKey());
+            } finally {
+                counter.lock.unlock();
+            }
+        }
+    }
+
+    private void takeSlow(HotStockCounter counter, String productId, int quantity) {
+        counter.lock.lock();
+        try {
+            if (counter.tryTake(quantity)) {
+                return;
+            }
+            // Enough units may be left, spread over several shards: gather them before leasing more
+            long units = counter.drain();
+            if (units < quantity && (counter.soldOutUntil == 0 || System.nanoTime() - counter.soldOutUntil >= 0)) {
+                long leased = lease(counter, productId, quantity - units);
+                if (leased == 0) {
+                    counter.soldOutUntil = System.nanoTime() + SOLD_OUT_RECHECK_NANOS;
+                }
+                units += leased;
+            }
+            if (units < quantity) {
+                counter.add(units);
+                rejected.increment();
+                throw new RuntimeException("Cannot decrement quantity below 0. Current quantity: " + (units + productQuantity(counter)) + ", requested change: " + -quantity);
+            }
+            counter.add(units - quantity);
+        } finally {
+            counter.lock.unlock();
+        }
+    }
+
+    // Moves at least `needed` and up to max(needed, leaseSize) units from the product row to the lease; 0 when it has fewer than needed
+    private long lease(HotStockCounter counter, String productId, long needed) {
+        Long leased = transactionTemplate.execute(status -> {
+            if (counter.leased == 0) {
+                // First lease of this run: a row found now was left by a previous run of this instance
+                hotStockLeaseRepository.findById(leaseId(productId)).ifPresent(this::settle);
+            }
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+            long units = Math.min(Math.max(needed, leaseSize), product.getQuantity());
+            if (units < needed || productRepository.decrementQuantity(productId, (int) units) == 0) {
+                counter.snapshot = product;
+                return 0L;
+            }
+            product.setQuantity(product.getQuantity() - (int) units);
+            counter.snapshot = product;
+            HotStockLease lease = hotStockLeaseRepository.findById(leaseId(productId))
+                    .orElseGet(() -> new HotStockLease(leaseId(productId), instanceId, productId, 0, 0, null));
+            lease.setLeased(counter.leased + units);
+            lease.setUpdatedAt(Instant.now());
+            hotStockLeaseRepository.save(lease);
+            return units;
+        });
+        if (leased > 0) {
+            counter.leased += leased;
+            leases.increment();
+        }
+        return leased;
+    }
+
+    // Gives the unsold part of a lease back to the product, unless another instance already did
+    private void settle(HotStockLease lease) {
+        if (hotStockLeaseRepository.deleteUnchanged(lease.getId(), lease.getUpdatedAt()) == 1) {
+            long remaining = lease.getLeased() - lease.getConsumed();
+            if (remaining > 0) {
+                productRepository.incrementQuantity(lease.getProductId(), (int) remaining);
+                reconciled.increment(remaining);
+            }
+        }
+    }
+
+    private void returnLease(HotStockCounter counter, String productId) {
+        if (counter.leased == 0) {
+            return;
+        }
+        long remaining = counter.drain();
+        transactionTemplate.executeWithoutResult(status -> {
+            hotStockLeaseRepository.deleteById(leaseId(productId));
+            if (remaining > 0) {
+                productRepository.incrementQuantity(productId, (int) remaining);
+            }
+        });
+        counter.leased = 0;
+    }
+
+    private static long productQuantity(HotStockCounter counter) {
+        Product snapshot = counter.snapshot;
+        return snapshot == null ? 0 : snapshot.getQuantity();
+    }
+
+    private String leaseId(String productId) {
+        return instanceId + "/" + productId;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.productservice.service;
+
+// A reservation that cannot be served from the current stock (or names an unknown product): the order
+// is to be rejected, unlike a database failure, which may succeed when retried
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,362 @@
+package org.example.productservice.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.productservice.entitie.Product;
+import org.example.productservice.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// In-memory inverted index of product names and descriptions, so the catalog can be searched without
+// loading it. Kept up to date by ProductService on create/update/delete; rebuilt from the database at
+// startup and every rebuild interval, which also picks up writes made through other instances.
+// Only ids come out of a search: the page itself is read from the database, stock included.
+@Component
+public class ProductSearchIndex {
+
+    public enum Sort {
+        RELEVANCE, PRICE_ASC, PRICE_DESC, NAME;
+
+        public static Sort parse(String value) {
+            return value == null || value.isBlank() ? RELEVANCE : Sort.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    // Ids of the requested page in order; priceFacets[i] counts the matches priced in [PRICE_BUCKETS[i], PRICE_BUCKETS[i + 1])
+    public record Result(List<String> productIds, long total, long[] priceFacets) {
+    }
+
+    public static final double[] PRICE_BUCKETS = {0, 50, 100, 500, 1000, 5000};
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int LOAD_CLEAR_INTERVAL = 500;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private Segment segment = new Segment();
+    // Writes made while a rebuild reads the database, replayed on the new segment; null when no rebuild runs
+    private List<Consumer<Segment>> writesDuringRebuild;
+
+    public ProductSearchIndex(ProductRepository productRepository, EntityManager entityManager,
+                              PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void put(Product product) {
+        write(segment -> segment.put(product.getId(), product.getName(), product.getDescription(), product.getPrice()));
+    }
+
+    public void remove(String productId) {
+        write(segment -> segment.remove(productId));
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every word of the query must match the start of a word of the name or description; min/max are inclusive
+    public Result search(String query, Double minPrice, Double maxPrice, Sort sort, int offset, int limit) {
+        List<String> tokens = new ArrayList<>(tokenize(query));
+        lock.readLock().lock();
+        try {
+            return segment.search(tokens, minPrice, maxPrice, sort, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${product.search.rebuild-interval-ms:600000}", fixedDelayString = "${product.search.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (writesDuringRebuild != null) {
+                return;
+            }
+            writesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Segment rebuilt = new Segment();
+        boolean loaded = false;
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Product> products = productRepository.streamAll()) {
+                    int count = 0;
+                    for (Product product : (Iterable<Product>) products::iterator) {
+                        rebuilt.put(product.getId(), product.getName(), product.getDescription(), product.getPrice());
+                        if (++count % LOAD_CLEAR_INTERVAL == 0) {
+                            entityManager.clear();
+                        }
+                    }
+                }
+            });
+            loaded = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // A failed load keeps the current segment
+                if (loaded) {
+                    writesDuringRebuild.forEach(write -> write.accept(rebuilt));
+                    segment = rebuilt;
+                }
+                writesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void write(Consumer<Segment> write) {
+        lock.writeLock().lock();
+        try {
+            write.accept(segment);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(write);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Lower case, without accents: "Téléphone" and "telephone" are the same word
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(normalized)) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static int priceBucket(double price) {
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BUCKETS.length && price >= PRICE_BUCKETS[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    // Sorted doc ids of one word
+    private static final class Postings {
+        final String term;
+        int[] docs = new int[4];
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            // New products get the highest doc id: appending keeps the array sorted
+            int position = size == 0 || docs[size - 1] < doc ? size : Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0 && position < size) {
+                return;
+            }
+            position = position < 0 ? -position - 1 : position;
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            docs[position] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+                size--;
+            }
+        }
+    }
+
+    private static final class Segment {
+        final Map<String, Integer> docIds = new HashMap<>();
+        final NavigableMap<String, Postings> terms = new TreeMap<>();
+        final NavigableMap<String, Postings> nameTerms = new TreeMap<>();
+        final BitSet live = new BitSet();
+        String[] productIds = new String[1024];
+        String[] sortNames = new String[1024];
+        double[] prices = new double[1024];
+        Postings[][] docPostings = new Postings[1024][];
+        int maxDoc;
+
+        void put(String productId, String name, String description, double price) {
+            Integer existing = docIds.get(productId);
+            int doc;
+            if (existing != null) {
+                doc = existing;
+                unlink(doc);
+            } else {
+                doc = maxDoc++;
+                if (doc == productIds.length) {
+                    int capacity = doc * 2;
+                    productIds = Arrays.copyOf(productIds, capacity);
+                    sortNames = Arrays.copyOf(sortNames, capacity);
+                    prices = Arrays.copyOf(prices, capacity);
+                    docPostings = Arrays.copyOf(docPostings, capacity);
+                }
+                docIds.put(productId, doc);
+            }
+            productIds[doc] = productId;
+            sortNames[doc] = name == null ? "" : name.toLowerCase(Locale.ROOT);
+            prices[doc] = price;
+            live.set(doc);
+
+            Set<String> nameTokens = tokenize(name);
+            Set<String> allTokens = new LinkedHashSet<>(nameTokens);
+            allTokens.addAll(tokenize(description));
+            Postings[] linked = new Postings[allTokens.size() + nameTokens.size()];
+            int i = 0;
+            for (String token : allTokens) {
+                linked[i++] = link(terms, token, doc);
+            }
+            for (String token : nameTokens) {
+                linked[i++] = link(nameTerms, token, doc);
+            }
+            docPostings[doc] = linked;
+        }
+
+        void remove(String productId) {
+            Integer doc = docIds.remove(productId);
+            if (doc != null) {
+                unlink(doc);
+                live.clear(doc);
+                productIds[doc] = null;
+                sortNames[doc] = null;
+            }
+        }
+
+        Result search(List<String> tokens, Double minPrice, Double maxPrice, Sort sort, int offset, int limit) {
+            BitSet matches = (BitSet) live.clone();
+            BitSet[] inName = new BitSet[tokens.size()];
+            for (int i = 0; i < tokens.size(); i++) {
+                matches.and(prefixMatches(terms, tokens.get(i)));
+                inName[i] = prefixMatches(nameTerms, tokens.get(i));
+            }
+
+            long[] facets = new long[PRICE_BUCKETS.length];
+            long total = 0;
+            int wanted = offset + limit;
+            Comparator<Hit> order = comparator(sort);
+            // Worst kept hit at the head, so a better one replaces it
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.max(1, wanted), order.reversed());
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                double price = prices[doc];
+                facets[priceBucket(price)]++;
+                if ((minPrice != null && price < minPrice) || (maxPrice != null && price > maxPrice)) {
+                    continue;
+                }
+                total++;
+                if (wanted == 0) {
+                    continue;
+                }
+                int score = 0;
+                for (BitSet name : inName) {
+                    if (name.get(doc)) {
+                        score++;
+                    }
+                }
+                Hit hit = new Hit(doc, score);
+                if (top.size() < wanted) {
+                    top.add(hit);
+                } else if (order.compare(hit, top.peek()) < 0) {
+                    top.poll();
+                    top.add(hit);
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(order);
+            List<String> page = new ArrayList<>(limit);
+            for (int i = offset; i < hits.size(); i++) {
+                page.add(productIds[hits.get(i).doc()]);
+            }
+            return new Result(page, total, facets);
+        }
+
+        private Comparator<Hit> comparator(Sort sort) {
+            Comparator<Hit> byName = Comparator.comparing(hit -> sortNames[hit.doc()]);
+            Comparator<Hit> byPrice = Comparator.comparingDouble(hit -> prices[hit.doc()]);
+            Comparator<Hit> order = switch (sort) {
+                case RELEVANCE -> Comparator.comparingInt(Hit::score).reversed().thenComparing(byName);
+                case PRICE_ASC -> byPrice.thenComparing(byName);
+                case PRICE_DESC -> byPrice.reversed().thenComparing(byName);
+                case NAME -> byName;
+            };
+            // Ties broken by doc id so pages never overlap
+            return order.thenComparingInt(Hit::doc);
+        }
+
+        private BitSet prefixMatches(NavigableMap<String, Postings> index, String prefix) {
+            BitSet docs = new BitSet(maxDoc);
+            for (Postings postings : index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    docs.set(postings.docs[i]);
+                }
+            }
+            return docs;
+        }
+
+        private static Postings link(NavigableMap<String, Postings> index, String token, int doc) {
+            Postings postings = index.computeIfAbsent(token, Postings::new);
+            postings.add(doc);
+            return postings;
+        }
+
+        private void unlink(int doc) {
+            for (Postings postings : docPostings[doc]) {
+                postings.remove(doc);
+                if (postings.size == 0) {
+                    terms.remove(postings.term, postings);
+                    nameTerms.remove(postings.term, postings);
+                }
+            }
+            docPostings[doc] = null;
+        }
+    }
+
+    private record Hit(int doc, int score) {
+    }
+}
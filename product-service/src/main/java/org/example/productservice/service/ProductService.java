@@ -1,24 +1,71 @@
 package org.example.productservice.service;
 
+import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.EntityManager;
+import org.example.productservice.dto.PriceFacetDTO;
 import org.example.productservice.dto.ProductRequestDTO;
 import org.example.productservice.dto.ProductResponseDTO;
+import org.example.productservice.dto.ProductSearchResultDTO;
+import org.example.productservice.dto.ReservationItemDTO;
 import org.example.productservice.entitie.Product;
+import org.example.productservice.entitie.StockReservation;
 import org.example.productservice.repository.ProductRepository;
+import org.example.productservice.repository.StockReservationRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ProductService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+    private static final int MAX_SEARCH_WINDOW = 10_000;
+
     private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final StockUpdateGuard stockUpdateGuard;
+    private final HotStockService hotStockService;
+    private final ProductSearchIndex productSearchIndex;
+    private final StockReservationRepository stockReservationRepository;
+    private final TransactionTemplate transactionTemplate;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, EntityManager entityManager,
+                          StockUpdateGuard stockUpdateGuard, HotStockService hotStockService,
+                          ProductSearchIndex productSearchIndex, StockReservationRepository stockReservationRepository,
+                          PlatformTransactionManager transactionManager) {
         this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.stockUpdateGuard = stockUpdateGuard;
+        this.hotStockService = hotStockService;
+        this.productSearchIndex = productSearchIndex;
+        this.stockReservationRepository = stockReservationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public ProductResponseDTO createProduct(ProductRequestDTO productRequestDTO) {
@@ -31,27 +78,38 @@ public class ProductService {
                 .build();
 
         Product savedProduct = productRepository.save(product);
+        afterCommit(() -> productSearchIndex.put(savedProduct));
         return mapToResponseDTO(savedProduct);
     }
 
+    // Each attempt runs in its own transaction (see StockUpdateGuard), so none is opened here
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ProductResponseDTO updateProduct(String id, ProductRequestDTO productRequestDTO) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+        return hotStockService.withLeaseReturned(id, () -> stockUpdateGuard.update(id, () -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
 
-        product.setName(productRequestDTO.getName());
-        product.setDescription(productRequestDTO.getDescription());
-        product.setPrice(productRequestDTO.getPrice());
-        product.setQuantity(productRequestDTO.getQuantity());
+            product.setName(productRequestDTO.getName());
+            product.setDescription(productRequestDTO.getDescription());
+            product.setPrice(productRequestDTO.getPrice());
+            product.setQuantity(productRequestDTO.getQuantity());
 
-        Product updatedProduct = productRepository.save(product);
-        return mapToResponseDTO(updatedProduct);
+            // Flushed here so a version conflict surfaces inside the retry loop
+            Product updatedProduct = productRepository.saveAndFlush(product);
+            afterCommit(() -> productSearchIndex.put(updatedProduct));
+            return mapToResponseDTO(updatedProduct);
+        }));
     }
 
     public void deleteProduct(String id) {
         if (!productRepository.existsById(id)) {
             throw new RuntimeException("Product not found with id: " + id);
         }
-        productRepository.deleteById(id);
+        hotStockService.withLeaseReturned(id, () -> {
+            productRepository.deleteById(id);
+            return null;
+        });
+        afterCommit(() -> productSearchIndex.remove(id));
     }
 
     @Transactional(readOnly = true)
@@ -61,6 +119,70 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public Slice<ProductResponseDTO> getProductsPage(int page, int size) {
+        Pageable pageable = PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), Sort.by("id"));
+        return productRepository.findSliceBy(pageable).map(this::mapToResponseDTO);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductResponseDTO> getProductsAfter(String afterId, int limit) {
+        return productRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? "" : afterId, Limit.of(Math.min(limit, MAX_PAGE_SIZE))).stream()
+                .map(this::mapToResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Observed(name = "product.search")
+    @Transactional(readOnly = true)
+    public ProductSearchResultDTO searchProducts(String query, Double minPrice, Double maxPrice,
+                                                 ProductSearchIndex.Sort sort, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int offset = Math.max(0, page) * limit;
+        if (offset + limit > MAX_SEARCH_WINDOW) {
+            // Deep pages would make every search keep that many hits
+            throw new IllegalArgumentException("Only the first " + MAX_SEARCH_WINDOW + " search results can be paged through; refine the query");
+        }
+        ProductSearchIndex.Result result = productSearchIndex.search(query, minPrice, maxPrice, sort, offset, limit);
+
+        // Read back in the order of the index; a product deleted meanwhile is left out
+        Map<String, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(result.productIds())) {
+            products.put(product.getId(), product);
+        }
+        List<ProductResponseDTO> found = new ArrayList<>(result.productIds().size());
+        for (String id : result.productIds()) {
+            Product product = products.get(id);
+            if (product != null) {
+                found.add(mapToResponseDTO(product));
+            }
+        }
+
+        List<PriceFacetDTO> priceFacets = new ArrayList<>(result.priceFacets().length);
+        double[] buckets = ProductSearchIndex.PRICE_BUCKETS;
+        for (int i = 0; i < buckets.length; i++) {
+            priceFacets.add(new PriceFacetDTO(buckets[i], i + 1 < buckets.length ? buckets[i + 1] : null, result.priceFacets()[i]));
+        }
+        return ProductSearchResultDTO.builder()
+                .products(found)
+                .total(result.total())
+                .priceFacets(priceFacets)
+                .build();
+    }
+
+    // Hands products to the consumer as they are read from the cursor, detaching them so the session stays small
+    @Transactional(readOnly = true)
+    public void streamAllProducts(Consumer<ProductResponseDTO> consumer) {
+        try (Stream<Product> products = productRepository.streamAll()) {
+            int count = 0;
+            for (Product product : (Iterable<Product>) products::iterator) {
+                consumer.accept(mapToResponseDTO(product));
+                if (++count % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
     @Transactional(readOnly = true)
     public ProductResponseDTO getProductById(String id) {
         Product product = productRepository.findById(id)
@@ -68,18 +190,189 @@ public class ProductService {
         return mapToResponseDTO(product);
     }
 
+    // Products missing from the catalog are simply absent from the result
+    @Observed(name = "product.batch-get")
+    @Transactional(readOnly = true)
+    public List<ProductResponseDTO> getProductsByIds(List<String> ids) {
+        return productRepository.findAllById(new HashSet<>(ids)).stream()
+                .map(this::mapToResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    // The change is re-applied to the current quantity when a concurrent update wins
+    @Observed(name = "product.quantity.update")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ProductResponseDTO updateProductQuantity(String id, int quantityChange) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+        if (quantityChange < 0 && hotStockService.isHot(id)) {
+            // Admitted or rejected in memory, see HotStockService
+            return mapToResponseDTO(hotStockService.decrement(id, -quantityChange));
+        }
+        ProductResponseDTO updated = stockUpdateGuard.update(id, () -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+
+            int newQuantity = product.getQuantity() + quantityChange;
+            if (newQuantity < 0) {
+                throw new RuntimeException("Cannot decrement quantity below 0. Current quantity: " + product.getQuantity() + ", requested change: " + quantityChange);
+            }
+
+            product.setQuantity(newQuantity);
+            Product updatedProduct = productRepository.saveAndFlush(product);
+            return mapToResponseDTO(updatedProduct);
+        });
+        // A hot product found sold out is looked up again on its next decrement
+        hotStockService.restocked(id);
+        return updated;
+    }
+
+    // All-or-nothing: each decrement is a conditional update, any shortage rolls back the whole reservation.
+    // Hot products are admitted in memory first (see HotStockService) and given back if the reservation fails,
+    // so their rows are left alone; the transaction only decrements the rows of the other products.
+    @Observed(name = "product.reserve")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ProductResponseDTO> reserveProducts(List<ReservationItemDTO> items) {
+        Map<String, Integer> hotTaken = takeHotStock(items);
+        Map<String, Integer> hotUnused = new HashMap<>(hotTaken);
+        List<ProductResponseDTO> reserved;
+        try {
+            reserved = transactionTemplate.execute(status -> {
+                Map<String, Integer> quantities = mergeReservationItems(firstDeliveries(items, StockReservation.RESERVED));
+
+                quantities.forEach((id, quantity) -> {
+                    Integer unused = hotUnused.get(id);
+                    if (unused != null && unused >= quantity) {
+                        hotUnused.put(id, unused - quantity);
+                    } else if (productRepository.decrementQuantity(id, quantity) == 0) {
+                        throw new InsufficientStockException("Cannot reserve " + quantity + " unit(s) of product " + id + ": product not found or insufficient quantity");
+                    }
+                });
+
+                return findReservedProducts(items);
+            });
+        } catch (RuntimeException e) {
+            hotTaken.forEach(hotStockService::giveBack);
+            throw e;
+        }
+        // Taken for orders a concurrent delivery had reserved already
+        hotUnused.forEach((id, units) -> {
+            if (units > 0) {
+                hotStockService.giveBack(id, units);
+            }
+        });
+        return reserved;
+    }
+
+    // Compensation for a reservation whose order could not be confirmed: puts the units back
+    @Observed(name = "product.release")
+    public List<ProductResponseDTO> releaseProducts(List<ReservationItemDTO> items) {
+        Map<String, Integer> quantities = mergeReservationItems(firstDeliveries(items, StockReservation.RELEASED));
+
+        quantities.forEach((id, quantity) -> {
+            if (productRepository.incrementQuantity(id, quantity) == 0) {
+                throw new RuntimeException("Product not found with id: " + id);
+            }
+            // A hot product found sold out is looked up again on its next decrement
+            afterCommit(() -> hotStockService.restocked(id));
+        });
+
+        return findReservedProducts(items);
+    }
+
+    // Admits the items of hot products in memory, leaving out those of orders already reserved: firstDeliveries
+    // decides again in the reservation transaction, and units taken for nothing are given back
+    private Map<String, Integer> takeHotStock(List<ReservationItemDTO> items) {
+        List<ReservationItemDTO> hotItems = items.stream()
+                .filter(item -> hotStockService.isHot(item.getProductId()))
+                .collect(Collectors.toList());
+        if (hotItems.isEmpty()) {
+            return Map.of();
+        }
+        Set<String> commandIds = hotItems.stream()
+                .map(ReservationItemDTO::getCommandId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> recorded = new HashSet<>();
+        stockReservationRepository.findAllById(commandIds).forEach(reservation -> recorded.add(reservation.getCommandId()));
+        Map<String, Integer> quantities = mergeReservationItems(hotItems.stream()
+                .filter(item -> !recorded.contains(item.getCommandId()))
+                .collect(Collectors.toList()));
+        try {
+            hotStockService.decrementAll(quantities);
+        } catch (RuntimeException e) {
+            throw new InsufficientStockException("Cannot reserve the products of the order: " + e.getMessage());
+        }
+        return quantities;
+    }
+
+    // Leaves out the items of orders already reserved (or released) and records the others in this transaction,
+    // so a redelivered request changes nothing. Items sent without a commandId are always applied.
+    private List<ReservationItemDTO> firstDeliveries(List<ReservationItemDTO> items, String status) {
+        Set<String> commandIds = new TreeSet<>();
+        for (ReservationItemDTO item : items) {
+            if (item.getCommandId() != null) {
+                commandIds.add(item.getCommandId());
+            }
+        }
+        if (commandIds.isEmpty()) {
+            return items;
+        }
+        Map<String, StockReservation> recorded = new HashMap<>();
+        for (StockReservation reservation : stockReservationRepository.findAllById(commandIds)) {
+            recorded.put(reservation.getCommandId(), reservation);
+        }
+
+        Instant now = Instant.now();
+        Set<String> applied = new HashSet<>();
+        for (String commandId : commandIds) {
+            StockReservation reservation = recorded.get(commandId);
+            if (reservation == null) {
+                // Released before it was reserved: the caller gave up on a reservation it got no answer for,
+                // and the RELEASED row turns that reservation into a no-op should it still come in
+                stockReservationRepository.save(new StockReservation(commandId, status, now));
+                if (StockReservation.RESERVED.equals(status)) {
+                    applied.add(commandId);
+                }
+            } else if (StockReservation.RELEASED.equals(status) && stockReservationRepository.markReleased(commandId, now) == 1) {
+                applied.add(commandId);
+            }
+        }
+        return items.stream()
+                .filter(item -> item.getCommandId() == null || applied.contains(item.getCommandId()))
+                .collect(Collectors.toList());
+    }
+
+    // Current stock of every requested product, including those of orders that were skipped
+    private List<ProductResponseDTO> findReservedProducts(List<ReservationItemDTO> items) {
+        Set<String> ids = items.stream().map(ReservationItemDTO::getProductId).collect(Collectors.toSet());
+        return productRepository.findAllById(ids).stream()
+                .map(this::mapToResponseDTO)
+                .collect(Collectors.toList());
+    }
 
-        int newQuantity = product.getQuantity() + quantityChange;
-        if (newQuantity < 0) {
-            throw new RuntimeException("Cannot decrement quantity below 0. Current quantity: " + product.getQuantity() + ", requested change: " + quantityChange);
+    // Merges duplicate lines; sorted so rows are always locked in the same order, which avoids deadlocks
+    private static Map<String, Integer> mergeReservationItems(List<ReservationItemDTO> items) {
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (ReservationItemDTO item : items) {
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Reserved quantity must be positive for product: " + item.getProductId());
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
+        return quantities;
+    }
 
-        product.setQuantity(newQuantity);
-        Product updatedProduct = productRepository.save(product);
-        return mapToResponseDTO(updatedProduct);
+    // The search index must not see writes that are rolled back
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private ProductResponseDTO mapToResponseDTO(Product product) {
@@ -88,7 +381,8 @@ public class ProductService {
                 .name(product.getName())
                 .description(product.getDescription())
                 .price(product.getPrice())
-                .quantity(product.getQuantity())
+                // Units leased to the in-memory counter of a hot product are still for sale
+                .quantity(product.getQuantity() + (int) hotStockService.leasedAvailable(product.getId()))
                 .build();
     }
 }
\ No newline at end of file
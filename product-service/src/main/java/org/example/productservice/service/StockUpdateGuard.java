@@ -0,0 +1,117 @@
+package org.example.productservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Runs read-modify-write updates of a product: writers of the same product queue on an in-JVM lock
+// instead of on the database row, and each attempt runs in its own transaction so a version conflict
+// (another instance won the race) can be retried on fresh data.
+@Component
+public class StockUpdateGuard {
+
+    private final ReentrantLock[] stripes;
+    private final Duration lockTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter exhausted;
+    private final Counter lockTimeouts;
+    private final Timer lockWait;
+
+    public StockUpdateGuard(PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${product.stock.lock-stripes:256}") int lockStripes,
+                            @Value("${product.stock.lock-timeout:2s}") Duration lockTimeout,
+                            @Value("${product.stock.max-attempts:5}") int maxAttempts,
+                            @Value("${product.stock.retry-backoff:10ms}") Duration retryBackoff) {
+        // Power of two so the stripe is a mask of the hash
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.lockTimeout = lockTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.conflicts = meterRegistry.counter("products.stock.conflicts");
+        this.retries = meterRegistry.counter("products.stock.retries");
+        this.exhausted = meterRegistry.counter("products.stock.retries.exhausted");
+        this.lockTimeouts = meterRegistry.counter("products.stock.lock.timeouts");
+        this.lockWait = Timer.builder("products.stock.lock.wait")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public <T> T update(String productId, Supplier<T> update) {
+        ReentrantLock lock = stripeFor(productId);
+        acquire(lock, productId);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return transactionTemplate.execute(status -> update.get());
+                } catch (OptimisticLockingFailureException e) {
+                    conflicts.increment();
+                    if (attempt >= maxAttempts) {
+                        exhausted.increment();
+                        throw e;
+                    }
+                    retries.increment();
+                    backOff(attempt);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(String productId) {
+        int hash = productId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private void acquire(ReentrantLock lock, String productId) {
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = lock.tryLock(lockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting to update product " + productId, e);
+        } finally {
+            lockWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!locked) {
+            lockTimeouts.increment();
+            throw new CannotAcquireLockException("Product " + productId + " is being updated, try again later");
+        }
+    }
+
+    // Jittered, growing with the attempt, so instances that collided do not collide again
+    private void backOff(int attempt) {
+        long maxMillis = retryBackoff.toMillis() * attempt;
+        if (maxMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis / 2, maxMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while retrying a product update", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.productservice.config;
+
+import org.example.common.security.CachingJwtDecoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAuthConverterTest {
+
+    // A new Jwt for every decode, as a signature-checking decoder returns
+    private final JwtDecoder validatingDecoder = token -> Jwt.withTokenValue(token)
+            .header("alg", "RS256")
+            .subject("alice-id")
+            .expiresAt(Instant.now().plusSeconds(300))
+            .claim("preferred_username", "alice")
+            .claim("scope", "openid profile")
+            .claim("realm_access", Map.of("roles", List.of("ADMIN", "USER")))
+            .build();
+
+    @Test
+    void converterReusesAuthoritiesOfACachedJwt() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(validatingDecoder, 100, Duration.ofMinutes(5));
+        JwtAuthConverter converter = new JwtAuthConverter();
+
+        AbstractAuthenticationToken first = converter.convert(decoder.decode("token"));
+        AbstractAuthenticationToken second = converter.convert(decoder.decode("token"));
+
+        assertNotSame(first, second);
+        assertEquals("alice", second.getName());
+        assertTrue(second.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList().contains("ADMIN"));
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+    }
+}
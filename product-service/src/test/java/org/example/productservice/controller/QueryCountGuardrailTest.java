@@ -0,0 +1,125 @@
+package org.example.productservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.productservice.dto.ProductRequestDTO;
+import org.example.productservice.dto.QuantityUpdateDTO;
+import org.example.productservice.dto.ReservationItemDTO;
+import org.example.productservice.dto.StockReservationDTO;
+import org.example.productservice.service.ProductService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Upper bounds on the SQL statements of each endpoint, over a catalog of PRODUCTS products: a query per
+// product (N+1) blows the bound and fails the build. Statements are counted by Hibernate statistics
+// against H2 in PostgreSQL mode.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:guardrails;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "eureka.client.enabled=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryCountGuardrailTest {
+
+    private static final int PRODUCTS = 30;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductService productService;
+
+    private final List<String> productIds = new ArrayList<>();
+
+    @BeforeAll
+    void createCatalog() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(productService.createProduct(new ProductRequestDTO("phone " + i, "smartphone", 10.0 + i, 1000)).getId());
+        }
+    }
+
+    @Test
+    void listingTheCatalog() throws Exception {
+        assertThat(statements(get("/products"))).isLessThanOrEqualTo(1);
+        assertThat(statements(get("/products").param("page", "0").param("size", "20"))).isLessThanOrEqualTo(1);
+        assertThat(statements(get("/products").param("after", "").param("limit", "50"))).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void searching() throws Exception {
+        assertThat(statements(get("/products/search").param("q", "phone").param("size", "50"))).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void pagingPastTheSearchWindowIsRejected() throws Exception {
+        mockMvc.perform(get("/products/search").param("q", "phone").param("page", "200").param("size", "50").with(jwt()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void gettingProductsByIds() throws Exception {
+        assertThat(statements(post("/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JSON.writeValueAsString(productIds)))).isLessThanOrEqualTo(1);
+        assertThat(statements(get("/products/{id}", productIds.get(0)))).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void reservingAndReleasingStock() throws Exception {
+        String commandId = UUID.randomUUID().toString();
+        StockReservationDTO reservation = StockReservationDTO.builder()
+                .items(productIds.subList(0, 10).stream().map(id -> new ReservationItemDTO(id, 1, commandId)).toList())
+                .build();
+
+        // the order's reservation row read and written, one conditional update per product, then one read of all of them
+        assertThat(statements(post("/products/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JSON.writeValueAsString(reservation)))).isLessThanOrEqualTo(2 + 10 + 1);
+        assertThat(statements(post("/products/reservations/release")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JSON.writeValueAsString(reservation)))).isLessThanOrEqualTo(2 + 10 + 1);
+    }
+
+    @Test
+    void updatingAQuantity() throws Exception {
+        assertThat(statements(put("/products/{id}/quantity", productIds.get(1))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JSON.writeValueAsString(new QuantityUpdateDTO(-1))))).isLessThanOrEqualTo(2);
+    }
+
+    private long statements(MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request.with(jwt())).andExpect(status().is2xxSuccessful());
+        return statistics.getPrepareStatementCount();
+    }
+}
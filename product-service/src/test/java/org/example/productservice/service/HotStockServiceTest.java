@@ -0,0 +1,230 @@
+package org.example.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.example.productservice.dto.ProductRequestDTO;
+import org.example.productservice.dto.ProductResponseDTO;
+import org.example.productservice.dto.ReservationItemDTO;
+import org.example.productservice.entitie.HotStockLease;
+import org.example.productservice.entitie.Product;
+import org.example.productservice.repository.HotStockLeaseRepository;
+import org.example.productservice.repository.ProductRepository;
+import org.example.productservice.repository.StockReservationRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ProductService.class, StockUpdateGuard.class, HotStockService.class, ProductSearchIndex.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotStockServiceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockServiceTest.class);
+
+    private static final int STOCK = 300;
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private HotStockLeaseRepository hotStockLeaseRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StockUpdateGuard stockUpdateGuard;
+
+    @Test
+    void concurrentDecrementsNeverOversell() throws Exception {
+        productRepository.save(new Product("flash-1", "phone", "flash sale", 10.0, STOCK, null));
+        HotStockService hotStock = hotStockService("node-1", "flash-1");
+
+        AtomicInteger admitted = new AtomicInteger();
+        run(productService(hotStock), "flash-1", THREADS, ATTEMPTS_PER_THREAD, admitted);
+
+        assertThat(admitted).hasValue(STOCK);
+        hotStock.flush();
+        HotStockLease lease = hotStockLeaseRepository.findById("node-1/flash-1").orElseThrow();
+        assertThat(lease.getConsumed()).isEqualTo(lease.getLeased());
+
+        hotStock.returnLeases();
+        assertThat(productRepository.findById("flash-1").orElseThrow().getQuantity()).isZero();
+        assertThat(hotStockLeaseRepository.findById("node-1/flash-1")).isEmpty();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void decrementThroughputOnTheRowAndInMemory() throws Exception {
+        productRepository.save(new Product("flash-bench-1", "phone", "flash sale", 10.0, 1_000, null));
+        productRepository.save(new Product("flash-bench-2", "phone", "flash sale", 10.0, 1_000, null));
+
+        // Same load through the product row and through the in-memory counters
+        long rowMillis = run(productService(hotStockService("node-1")), "flash-bench-2", 32, 50, new AtomicInteger());
+        long hotMillis = run(productService(hotStockService("node-1", "flash-bench-1")), "flash-bench-1", 32, 50, new AtomicInteger());
+        log.info("{} decrements of one product: {} ms on the row, {} ms in memory", 32 * 50, rowMillis, hotMillis);
+    }
+
+    @Test
+    void reservationsOfHotProductsLeaveTheProductRowAlone() {
+        productRepository.save(new Product("flash-6", "phone", "", 10.0, 500, null));
+        productRepository.save(new Product("plain-6", "case", "", 2.0, 1, null));
+        HotStockService hotStock = hotStockService("node-1", "flash-6");
+        ProductService productService = productService(hotStock);
+
+        // The first reservation leases 100 units, the next ones are admitted from them
+        productService.reserveProducts(List.of(new ReservationItemDTO("flash-6", 2, "hot-order-1")));
+        Product leased = productRepository.findById("flash-6").orElseThrow();
+        assertThat(leased.getQuantity()).isEqualTo(400);
+
+        assertThat(productService.reserveProducts(List.of(new ReservationItemDTO("flash-6", 3, "hot-order-2")))).singleElement()
+                .extracting(ProductResponseDTO::getQuantity).isEqualTo(495);
+        // Redelivered: applied once
+        productService.reserveProducts(List.of(new ReservationItemDTO("flash-6", 3, "hot-order-2")));
+        Product row = productRepository.findById("flash-6").orElseThrow();
+        assertThat(row.getQuantity()).isEqualTo(400);
+        assertThat(row.getVersion()).isEqualTo(leased.getVersion());
+        assertThat(productService.getProductById("flash-6").getQuantity()).isEqualTo(495);
+
+        // A shortage of another product of the order gives the hot units back
+        assertThatThrownBy(() -> productService.reserveProducts(List.of(
+                new ReservationItemDTO("flash-6", 10, "hot-order-3"), new ReservationItemDTO("plain-6", 2, "hot-order-3"))))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThat(productService.getProductById("flash-6").getQuantity()).isEqualTo(495);
+
+        // Every unit reported can be reserved, then none is left
+        productService.reserveProducts(List.of(new ReservationItemDTO("flash-6", 495, "hot-order-4")));
+        assertThat(productService.getProductById("flash-6").getQuantity()).isZero();
+        assertThatThrownBy(() -> productService.reserveProducts(List.of(new ReservationItemDTO("flash-6", 1, "hot-order-5"))))
+                .isInstanceOf(InsufficientStockException.class);
+    }
+
+    @Test
+    void leasedUnitsAreStillReportedAndReturned() {
+        productRepository.save(new Product("flash-3", "phone", "", 10.0, 500, null));
+        HotStockService hotStock = hotStockService("node-1", "flash-3");
+        ProductService productService = productService(hotStock);
+
+        assertThat(productService.updateProductQuantity("flash-3", -3).getQuantity()).isEqualTo(497);
+        // 100 units moved to the lease, 97 of them still for sale
+        assertThat(productRepository.findById("flash-3").orElseThrow().getQuantity()).isEqualTo(400);
+        assertThat(productService.getProductById("flash-3").getQuantity()).isEqualTo(497);
+
+        // Setting the quantity returns the lease first, so the leased units are not counted twice
+        productService.updateProduct("flash-3", new ProductRequestDTO("phone", "", 10.0, 50));
+        assertThat(productService.getProductById("flash-3").getQuantity()).isEqualTo(50);
+        assertThat(productService.updateProductQuantity("flash-3", -50).getQuantity()).isZero();
+        assertThatThrownBy(() -> productService.updateProductQuantity("flash-3", -1))
+                .hasMessageContaining("Cannot decrement quantity below 0");
+
+        // A restock through the row is picked up by the next decrement
+        productService.updateProductQuantity("flash-3", 5);
+        assertThat(productService.updateProductQuantity("flash-3", -5).getQuantity()).isZero();
+    }
+
+    @Test
+    void startupReturnsWhatACrashedRunLeftLeased() {
+        productRepository.save(new Product("flash-4", "phone", "", 10.0, 1000, null));
+        HotStockService crashed = hotStockService("node-2", "flash-4");
+        for (int i = 0; i < 30; i++) {
+            crashed.decrement("flash-4", 1);
+        }
+        crashed.flush();
+        // Neither flushed nor returned: lost with the process
+        crashed.decrement("flash-4", 1);
+
+        HotStockService restarted = hotStockService("node-2", "flash-4");
+        restarted.reconcile();
+
+        // 30 sold units stay sold, the unflushed one is given back with the rest of the lease
+        assertThat(productRepository.findById("flash-4").orElseThrow().getQuantity()).isEqualTo(970);
+        assertThat(hotStockLeaseRepository.findById("node-2/flash-4")).isEmpty();
+    }
+
+    @Test
+    void leasesOfADeadInstanceAreReturnedOnceStale() {
+        productRepository.save(new Product("flash-5", "phone", "", 10.0, 900, null));
+        hotStockLeaseRepository.save(new HotStockLease("node-gone/flash-5", "node-gone", "flash-5", 100, 40, Instant.now()));
+        HotStockService other = hotStockService("node-3", "flash-5");
+
+        other.reconcile();
+        assertThat(productRepository.findById("flash-5").orElseThrow().getQuantity()).isEqualTo(900);
+
+        HotStockLease lease = hotStockLeaseRepository.findById("node-gone/flash-5").orElseThrow();
+        lease.setUpdatedAt(Instant.now().minus(Duration.ofMinutes(5)));
+        hotStockLeaseRepository.save(lease);
+        other.reconcile();
+        other.reconcile();
+        assertThat(productRepository.findById("flash-5").orElseThrow().getQuantity()).isEqualTo(960);
+    }
+
+    private long run(ProductService productService, String productId, int threads, int attempts,
+                     AtomicInteger admitted) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attempts; i++) {
+                    try {
+                        productService.updateProductQuantity(productId, -1);
+                        admitted.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // sold out
+                    }
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return (System.nanoTime() - begin) / 1_000_000;
+    }
+
+    private HotStockService hotStockService(String instanceId, String... productIds) {
+        return new HotStockService(productRepository, hotStockLeaseRepository, transactionManager, new SimpleMeterRegistry(),
+                true, List.of(productIds), 100, Duration.ofMinutes(1), instanceId);
+    }
+
+    private ProductService productService(HotStockService hotStockService) {
+        return new ProductService(productRepository, entityManager, stockUpdateGuard, hotStockService, productSearchIndex,
+                stockReservationRepository, transactionManager);
+    }
+}
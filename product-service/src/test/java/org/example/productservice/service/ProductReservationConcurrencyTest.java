@@ -0,0 +1,108 @@
+package org.example.productservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.productservice.dto.ReservationItemDTO;
+import org.example.productservice.entitie.Product;
+import org.example.productservice.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ProductService.class, StockUpdateGuard.class, HotStockService.class, ProductSearchIndex.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductReservationConcurrencyTest {
+
+    private static final int STOCK = 25;
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 5;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Product product = productRepository.save(new Product("hot-sku", "phone", "flash sale", 10.0, STOCK, null));
+
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        productService.reserveProducts(List.of(new ReservationItemDTO(product.getId(), 1)));
+                        reserved.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(reserved.get()).isEqualTo(STOCK);
+        assertThat(rejected.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD - STOCK);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getQuantity()).isZero();
+    }
+
+    @Test
+    void reservationIsAllOrNothing() {
+        productRepository.save(new Product("p1", "phone", "", 10.0, 5, null));
+        productRepository.save(new Product("p2", "disk", "", 10.0, 1, null));
+
+        assertThatThrownBy(() -> productService.reserveProducts(List.of(
+                new ReservationItemDTO("p1", 3),
+                new ReservationItemDTO("p2", 2))))
+                .isInstanceOf(InsufficientStockException.class);
+
+        assertThat(productRepository.findById("p1").orElseThrow().getQuantity()).isEqualTo(5);
+        assertThat(productRepository.findById("p2").orElseThrow().getQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void redeliveredReservationsAndReleasesOfAnOrderAreAppliedOnce() {
+        productRepository.save(new Product("p3", "phone", "", 10.0, 10, null));
+        List<ReservationItemDTO> order = List.of(new ReservationItemDTO("p3", 4, "order-1"));
+
+        productService.reserveProducts(order);
+        assertThat(productService.reserveProducts(order)).singleElement()
+                .satisfies(product -> assertThat(product.getQuantity()).isEqualTo(6));
+
+        productService.releaseProducts(order);
+        productService.releaseProducts(order);
+        assertThat(productRepository.findById("p3").orElseThrow().getQuantity()).isEqualTo(10);
+
+        // released before its reservation came in: the late reservation is not applied
+        List<ReservationItemDTO> abandoned = List.of(new ReservationItemDTO("p3", 2, "order-2"));
+        productService.releaseProducts(abandoned);
+        productService.reserveProducts(abandoned);
+        assertThat(productRepository.findById("p3").orElseThrow().getQuantity()).isEqualTo(10);
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.productservice.service;
+
+import org.example.productservice.entitie.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndexTest.class);
+
+    private final ProductSearchIndex index = new ProductSearchIndex(null, null, null);
+
+    @Test
+    void matchesEveryWordAsAPrefixIgnoringCaseAndAccents() {
+        index.put(product("1", "Téléphone Samsung Galaxy", "écran 6 pouces", 900));
+        index.put(product("2", "Coque", "pour telephone Samsung", 20));
+        index.put(product("3", "Calculatrice", "scientifique", 30));
+
+        assertThat(search("telephone samsung").productIds()).containsExactly("1", "2");
+        assertThat(search("TELEPH gal").productIds()).containsExactly("1");
+        assertThat(search("ecran").productIds()).containsExactly("1");
+        assertThat(search("samsung calculatrice").productIds()).isEmpty();
+        assertThat(search(null).total()).isEqualTo(3);
+    }
+
+    @Test
+    void ranksNameMatchesFirstAndSortsOnRequest() {
+        index.put(product("1", "Coque", "pour telephone", 20));
+        index.put(product("2", "Telephone", "basique", 100));
+        index.put(product("3", "Telephone pro", "haut de gamme", 1500));
+
+        assertThat(search("telephone").productIds()).containsExactly("2", "3", "1");
+        assertThat(index.search("telephone", null, null, ProductSearchIndex.Sort.PRICE_DESC, 0, 10).productIds())
+                .containsExactly("3", "2", "1");
+        assertThat(index.search("telephone", null, null, ProductSearchIndex.Sort.PRICE_ASC, 1, 1).productIds())
+                .containsExactly("2");
+    }
+
+    @Test
+    void filtersByPriceButCountsFacetsOverAllTextMatches() {
+        index.put(product("1", "Disque dur", "", 40));
+        index.put(product("2", "Disque SSD", "", 120));
+        index.put(product("3", "Disque externe", "", 700));
+
+        ProductSearchIndex.Result result = index.search("disque", 100.0, 500.0, ProductSearchIndex.Sort.RELEVANCE, 0, 10);
+
+        assertThat(result.productIds()).containsExactly("2");
+        assertThat(result.total()).isEqualTo(1);
+        // Buckets 0, 50, 100, 500, 1000, 5000
+        assertThat(result.priceFacets()).containsExactly(1, 0, 1, 1, 0, 0);
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        index.put(product("1", "Clavier", "mecanique", 80));
+        index.put(product("2", "Souris", "sans fil", 25));
+
+        index.put(product("1", "Clavier", "sans fil", 90));
+        index.remove("2");
+
+        assertThat(search("mecanique").productIds()).isEmpty();
+        assertThat(search("sans fil").productIds()).containsExactly("1");
+        assertThat(search("souris").productIds()).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    /**
+     * Indexes a synthetic catalog (1M products by default, -Dbenchmark.products to change it)
+     * and measures search latency for selective and broad queries.
+     */
+    @Test
+    @Tag("benchmark")
+    void searchLatencyOnLargeCatalog() {
+        int products = Integer.getInteger("benchmark.products", 1_000_000);
+        String[] brands = {"samsung", "apple", "xiaomi", "lenovo", "asus", "sony", "philips", "bosch", "hp", "dell"};
+        String[] kinds = {"telephone", "ordinateur", "ecran", "clavier", "souris", "casque", "tablette", "imprimante", "disque", "chargeur"};
+        String[] words = new String[5_000];
+        Random random = new Random(42);
+        for (int i = 0; i < words.length; i++) {
+            words[i] = randomWord(random);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < products; i++) {
+            String name = kinds[random.nextInt(kinds.length)] + " " + brands[random.nextInt(brands.length)] + " " + words[random.nextInt(words.length)];
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                description.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            index.put(product("p" + i, name, description.toString(), random.nextInt(3000)));
+        }
+        long indexMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("indexed {} products in {} ms", products, indexMillis);
+
+        List<String> queries = new ArrayList<>(List.of("telephone samsung", "ecran", "clavier sans", "sa", ""));
+        for (int i = 0; i < 20; i++) {
+            queries.add(words[random.nextInt(words.length)]);
+        }
+        List<Long> medians = new ArrayList<>();
+        for (String query : queries) {
+            long[] samples = new long[15];
+            for (int i = 0; i < samples.length; i++) {
+                long begin = System.nanoTime();
+                index.search(query, 100.0, 2000.0, ProductSearchIndex.Sort.RELEVANCE, 0, 20);
+                samples[i] = System.nanoTime() - begin;
+            }
+            Arrays.sort(samples);
+            medians.add(samples[samples.length / 2]);
+        }
+        for (int i = 0; i < 5; i++) {
+            ProductSearchIndex.Result result = index.search(queries.get(i), 100.0, 2000.0, ProductSearchIndex.Sort.RELEVANCE, 0, 20);
+            log.info("'{}': {} matches, median {} ms", queries.get(i), result.total(), String.format("%.2f", medians.get(i) / 1e6));
+        }
+        long selective = medians.subList(5, medians.size()).stream().sorted().toList().get(7);
+        log.info("single rare word: median {} ms", String.format("%.2f", selective / 1e6));
+
+        assertThat(index.size()).isEqualTo(products);
+        // A scan of the whole catalog per search would take orders of magnitude longer
+        assertThat(selective).isLessThan(50_000_000L);
+    }
+
+    private ProductSearchIndex.Result search(String query) {
+        return index.search(query, null, null, ProductSearchIndex.Sort.RELEVANCE, 0, 10);
+    }
+
+    private static Product product(String id, String name, String description, double price) {
+        return new Product(id, name, description, price, 1, 0L);
+    }
+
+    private static String randomWord(Random random) {
+        char[] word = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.productservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.example.productservice.dto.ProductRequestDTO;
+import org.example.productservice.entitie.Product;
+import org.example.productservice.repository.ProductRepository;
+import org.example.productservice.repository.StockReservationRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ProductService.class, StockUpdateGuard.class, HotStockService.class, ProductSearchIndex.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductStockContentionTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStockContentionTest.class);
+
+    private static final int THREADS = 16;
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockUpdateGuard stockUpdateGuard;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void staleUpdateFailsInsteadOfOverwriting() {
+        productRepository.save(new Product("stale", "phone", "", 10.0, 10, null));
+        Product first = productRepository.findById("stale").orElseThrow();
+        Product second = productRepository.findById("stale").orElseThrow();
+
+        first.setQuantity(20);
+        productRepository.save(first);
+        second.setQuantity(5);
+
+        assertThatThrownBy(() -> productRepository.save(second))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(productRepository.findById("stale").orElseThrow().getQuantity()).isEqualTo(20);
+    }
+
+    @Test
+    void conflictingUpdateIsRetriedOnFreshData() {
+        productRepository.save(new Product("retried", "phone", "", 10.0, 10, null));
+        double conflictsBefore = meterRegistry.counter("products.stock.conflicts").count();
+        double retriesBefore = meterRegistry.counter("products.stock.retries").count();
+        TransactionTemplate otherInstance = new TransactionTemplate(transactionManager);
+        otherInstance.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger attempts = new AtomicInteger();
+
+        int quantity = stockUpdateGuard.update("retried", () -> {
+            Product product = productRepository.findById("retried").orElseThrow();
+            if (attempts.incrementAndGet() == 1) {
+                // Another instance updates the product between our read and our write
+                otherInstance.executeWithoutResult(tx -> productRepository.incrementQuantity("retried", 5));
+            }
+            product.setQuantity(product.getQuantity() + 1);
+            return productRepository.saveAndFlush(product).getQuantity();
+        });
+
+        assertThat(attempts).hasValue(2);
+        assertThat(quantity).isEqualTo(16);
+        assertThat(meterRegistry.counter("products.stock.conflicts").count() - conflictsBefore).isEqualTo(1);
+        assertThat(meterRegistry.counter("products.stock.retries").count() - retriesBefore).isEqualTo(1);
+    }
+
+    @Test
+    void retriesAreBounded() {
+        productRepository.save(new Product("contended", "phone", "", 10.0, 10, null));
+        double exhaustedBefore = meterRegistry.counter("products.stock.retries.exhausted").count();
+        StockUpdateGuard guard = new StockUpdateGuard(transactionManager, meterRegistry, 1, Duration.ofSeconds(1), 3, Duration.ZERO);
+        TransactionTemplate otherInstance = new TransactionTemplate(transactionManager);
+        otherInstance.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> guard.update("contended", () -> {
+            attempts.incrementAndGet();
+            Product product = productRepository.findById("contended").orElseThrow();
+            otherInstance.executeWithoutResult(tx -> productRepository.incrementQuantity("contended", 1));
+            product.setQuantity(0);
+            return productRepository.saveAndFlush(product);
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.counter("products.stock.retries.exhausted").count() - exhaustedBefore).isEqualTo(1);
+        assertThat(productRepository.findById("contended").orElseThrow().getQuantity()).isEqualTo(13);
+    }
+
+    // Hot SKU: every writer targets the same product, none of the increments may be lost
+    @Test
+    void concurrentQuantityUpdatesOnHotSkuAreNotLost() throws Exception {
+        updateConcurrently("flash-sku", 4, 10);
+
+        Product product = productRepository.findById("flash-sku").orElseThrow();
+        assertThat(product.getQuantity()).isEqualTo(4 * 10);
+        assertThat(product.getVersion()).isEqualTo(4L * 10);
+        assertThat(meterRegistry.get("products.stock.lock.wait").timer().count()).isGreaterThan(0);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void hotSkuUpdateThroughput() throws Exception {
+        double conflictsBefore = meterRegistry.counter("products.stock.conflicts").count();
+
+        long elapsedMillis = updateConcurrently("flash-sku-bench", THREADS, UPDATES_PER_THREAD);
+
+        log.info("{} updates in {} ms, {} version conflicts, lock wait p99 = {} ms",
+                THREADS * UPDATES_PER_THREAD, elapsedMillis,
+                meterRegistry.counter("products.stock.conflicts").count() - conflictsBefore,
+                meterRegistry.get("products.stock.lock.wait").timer().takeSnapshot().percentileValues()[1].value(TimeUnit.MILLISECONDS));
+        assertThat(productRepository.findById("flash-sku-bench").orElseThrow().getQuantity()).isEqualTo(THREADS * UPDATES_PER_THREAD);
+    }
+
+    // Two "instances" with their own locks: writers queue per instance and only meet on the version column
+    private long updateConcurrently(String productId, int threads, int updatesPerThread) throws Exception {
+        productRepository.save(new Product(productId, "phone", "flash sale", 10.0, 0, null));
+        ProductService instance = newInstance();
+        ProductService otherInstance = newInstance();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            ProductService service = t % 2 == 0 ? instance : otherInstance;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < updatesPerThread; i++) {
+                    service.updateProductQuantity(productId, 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return (System.nanoTime() - begin) / 1_000_000;
+    }
+
+    // Generous retries: an instance whose writers follow each other without a gap can win many rounds in a row
+    private ProductService newInstance() {
+        return new ProductService(productRepository, entityManager,
+                new StockUpdateGuard(transactionManager, meterRegistry, 256, Duration.ofSeconds(5), 100, Duration.ofMillis(1)), hotStockService, productSearchIndex,
+                stockReservationRepository, transactionManager);
+    }
+
+    @Test
+    void fullUpdateKeepsTheVersion() {
+        productRepository.save(new Product("full", "phone", "", 10.0, 10, null));
+
+        productService.updateProduct("full", new ProductRequestDTO("phone 2", "new model", 12.0, 7));
+
+        Product product = productRepository.findById("full").orElseThrow();
+        assertThat(product.getName()).isEqualTo("phone 2");
+        assertThat(product.getVersion()).isEqualTo(1L);
+    }
+}